@@ -9,7 +9,9 @@ import java.time.LocalDate;
 import java.time.format.TextStyle;
 import java.util.Locale;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.swing.table.DefaultTableModel;
 
 import com.formdev.flatlaf.FlatLightLaf;
@@ -19,6 +21,13 @@ public class AttendanceAppGUI extends JFrame {
 
 	private static final long serialVersionUID = 1L;
 
+	// Parsed-input snapshots, keyed by input file content
+	private static final String PARSE_CACHE_DIR =
+			System.getProperty("user.home") + java.io.File.separator + ".bioparse" + java.io.File.separator + "cache";
+	// Month files of past merges, for lookups without the merged workbooks
+	private static final String ARCHIVE_DIR =
+			System.getProperty("user.home") + java.io.File.separator + ".bioparse" + java.io.File.separator + "archive";
+
 	private CardLayout cardLayout;
 	private JPanel mainPanel;
 	private DashboardPanel dashboardPanel;
@@ -27,8 +36,10 @@ public class AttendanceAppGUI extends JFrame {
 	private ReportViewerPanel reportViewerPanel;
 	private VisualizationPanel visualizationPanel;
 
-	// Shared data
-	private AttendanceMerger.MergeResult mergeResult;
+	// Shared data: the last finished merge, replaced as a whole by each new one
+	private final AtomicReference<MergeSnapshot> snapshot = new AtomicReference<>(MergeSnapshot.EMPTY);
+	// Summary rows computed by the last merge pipeline, not yet shown in the report panel
+	private volatile List<String[]> pipelineReportRows;
 
 	public AttendanceAppGUI() {
 		setupLookAndFeel();
@@ -94,6 +105,7 @@ public class AttendanceAppGUI extends JFrame {
 		dashboardPanel = new DashboardPanel();
 		configWizardPanel = new ConfigWizardPanel(this::processData, this::exportCsv, this::exportMergedFile);
 		dataViewerPanel = new DataViewerPanel(this::queryData, this::exportFilteredData);
+		dataViewerPanel.setArchiveDir(ARCHIVE_DIR);
 		reportViewerPanel = new ReportViewerPanel();
 		visualizationPanel = new VisualizationPanel();
 
@@ -117,11 +129,12 @@ public class AttendanceAppGUI extends JFrame {
 	    System.out.println("Showing panel: " + panelName);
 	    cardLayout.show(mainPanel, panelName);
 	    
-	    // Update panels with latest data when shown
+	    // Update panels with latest data when shown; they skip versions already shown
+	    MergeSnapshot current = snapshot.get();
 	    if ("HOME".equals(panelName) && dashboardPanel != null) {
-	        dashboardPanel.updateStats(mergeResult);
-	    } else if ("DATA".equals(panelName) && dataViewerPanel != null && mergeResult != null) {
-	        dataViewerPanel.setMergeResult(mergeResult);
+	        dashboardPanel.updateStats(current);
+	    } else if ("DATA".equals(panelName) && dataViewerPanel != null && !current.isEmpty()) {
+	        dataViewerPanel.setSnapshot(current);
 	        
 	        // Also set merged file path if available
 	        String mergedPath = configWizardPanel.getMergedFilePath();
@@ -130,10 +143,10 @@ public class AttendanceAppGUI extends JFrame {
 	        }
 	        dataViewerPanel.setMergedFilePath(mergedPath);
 	    } else if ("VISUALIZATION".equals(panelName) && visualizationPanel != null) {
-	        visualizationPanel.setMergeResult(mergeResult);
+	        visualizationPanel.setSnapshot(current);
 	    } else if ("REPORT".equals(panelName) && reportViewerPanel != null) {
-	        // Always generate report data directly
-	        if (mergeResult != null && !reportViewerPanel.hasData()) {
+	        // Generate report data unless this merge's rows are already loaded
+	        if (!current.isEmpty() && reportViewerPanel.getDataVersion() != current.version) {
 	            generateAndLoadMonthlyReport();
 	        } else if (!reportViewerPanel.hasData()) {
 	            // Show empty state
@@ -145,7 +158,11 @@ public class AttendanceAppGUI extends JFrame {
 	private void processData(ActionEvent e) {
 	    // Validate input file
 	    String inputFile = configWizardPanel.getInputFilePath();
-	    if (inputFile == null || inputFile.isEmpty() || !new File(inputFile).exists()) {
+	    // Several exports (or a folder of them) are merged as one batch
+	    boolean validInput = inputFile != null && !inputFile.isEmpty() && (BatchMerger.isBatch(inputFile)
+	        ? !BatchMerger.inputFiles(inputFile).isEmpty()
+	        : new File(inputFile).exists());
+	    if (!validInput) {
 	        configWizardPanel.setStatusMessage("Please select a valid input file first!", true);
 	        return;
 	    }
@@ -193,20 +210,53 @@ public class AttendanceAppGUI extends JFrame {
 	                System.out.println("Year: " + finalYear + ", Month: " + finalMonth);
 	                System.out.println("Holidays: " + finalHolidays);
 	                
-	                publish(30); // 30% progress
-	                
 	                // Call the AttendanceMerger
-	                mergeResult = AttendanceMerger.merge(
+	                // Re-runs on an unchanged export (e.g. after editing holidays) reuse the cached parse
+	                AttendanceMerger.MergeOptions options = new AttendanceMerger.MergeOptions();
+	                options.cacheDir = PARSE_CACHE_DIR;
+	                options.archiveDir = ARCHIVE_DIR;
+	                // Master rows are streamed straight into the output file
+	                options.directOutput = true;
+	                // Sheets (or punch-log partitions) are parsed on all cores
+	                options.parallelism = Runtime.getRuntime().availableProcessors();
+	                // Group-wide batches can outgrow the heap: spill parsed employees past a quarter of it
+	                if (BatchMerger.isBatch(inputFile)) {
+	                    options.heapBudgetMB = (int) (Runtime.getRuntime().maxMemory() / 4 >> 20);
+	                }
+	                
+	                // Sheets parsed drive 10-95%; the rest is writing the merged file
+	                options.progress = new MergeProgress() {
+	                    @Override
+	                    public void update(int sheetsDone, int totalSheets, long rowsRead, int employees) {
+	                        int percent = totalSheets > 0 ? 10 + (int) (85L * sheetsDone / totalSheets) : 10;
+	                        configWizardPanel.showProgress(percent, String.format(
+	                            "Sheet %d/%d · %,d rows · %d employees", sheetsDone, totalSheets, rowsRead, employees));
+	                    }
+	                    
+	                    @Override
+	                    public boolean isCancelled() {
+	                        return configWizardPanel.isCancelRequested();
+	                    }
+	                };
+	                
+	                // Parse, metrics, Master sheet and summary CSV run as overlapping stages
+	                MergePipeline.Result pipeline = MergePipeline.run(
 	                    inputFile, 
 	                    finalMergedFile, 
-	                    finalHolidays
+	                    finalReportFile.replace(".xlsx", ".csv"),
+	                    finalHolidays,
+	                    finalYear,
+	                    finalMonth,
+	                    options
 	                );
+	                pipelineReportRows = pipeline.reportRows;
+	                MergeSnapshot.publish(snapshot, pipeline.mergeResult);
 	                
-	                publish(90); // 90% progress
+	                publish(95); // merged file written
 	                
 	                return true;
-	            } catch (Exception ex) {
-	                ex.printStackTrace();
+	            } catch (java.util.concurrent.CancellationException ex) {
+	                System.out.println("Merge cancelled by user");
 	                return false;
 	            }
 	        }
@@ -224,6 +274,9 @@ public class AttendanceAppGUI extends JFrame {
 	            try {
 	                boolean success = get();
 	                if (success) {
+	                    MergeSnapshot current = snapshot.get();
+	                    AttendanceMerger.MergeResult mergeResult = current.result;
+	                    
 	                    // Update UI on success
 	                    configWizardPanel.enableExportButtons(true);
 	                    configWizardPanel.hideLoading();
@@ -242,8 +295,8 @@ public class AttendanceAppGUI extends JFrame {
 	                    
 	                    // AUTO-GENERATE MONTHLY REPORT when processing completes
 	                    try {
-	                        // Generate monthly summary report file
-	                        generateMonthlyReport(finalMergedFile, finalReportFile, finalHolidays, finalYear, finalMonth);
+	                        // The pipeline already wrote the summary CSV; add the Excel version
+	                        writeReportWorkbook(finalReportFile.replace(".xlsx", ".csv"), finalReportFile);
 	                        
 	                        System.out.println("Auto-generated monthly report: " + finalReportFile);
 	                        
@@ -259,12 +312,12 @@ public class AttendanceAppGUI extends JFrame {
 	                    
 	                    // Update dashboard panel
 	                    if (dashboardPanel != null) {
-	                        dashboardPanel.updateStats(mergeResult);
+	                        dashboardPanel.updateStats(current);
 	                    }
 	                    
 	                    // Update data viewer panel with both merge result and file path
 	                    if (dataViewerPanel != null) {
-	                        dataViewerPanel.setMergeResult(mergeResult);
+	                        dataViewerPanel.setSnapshot(current);
 	                        
 	                        // Get merged file path from config panel
 	                        String mergedPath = configWizardPanel.getMergedFilePath();
@@ -278,7 +331,7 @@ public class AttendanceAppGUI extends JFrame {
 	                    
 	                    // Update visualization panel
 	                    if (visualizationPanel != null) {
-	                        visualizationPanel.setMergeResult(mergeResult);
+	                        visualizationPanel.setSnapshot(current);
 	                    }
 	                    
 	                    // Log success
@@ -303,6 +356,9 @@ public class AttendanceAppGUI extends JFrame {
 	                        "Processing Complete",
 	                        JOptionPane.INFORMATION_MESSAGE);
 	                    
+	                } else if (configWizardPanel.isCancelRequested()) {
+	                    configWizardPanel.hideLoading();
+	                    configWizardPanel.setStatusMessage("Processing cancelled.", false);
 	                } else {
 	                    configWizardPanel.hideLoading();
 	                    configWizardPanel.setStatusMessage(
@@ -358,7 +414,7 @@ public class AttendanceAppGUI extends JFrame {
 	}
 
 	private void exportCsv(ActionEvent e) {
-	    if (mergeResult == null) {
+	    if (snapshot.get().isEmpty()) {
 	        configWizardPanel.setStatusMessage("Please process data first!", true);
 	        return;
 	    }
@@ -489,6 +545,7 @@ public class AttendanceAppGUI extends JFrame {
 	                                  List<Integer> holidays, int year, int month) throws Exception {
 	    
 	    AttendanceReportGenerator reportGenerator = new AttendanceReportGenerator();
+	    AttendanceMerger.MergeResult mergeResult = snapshot.get().result;
 	    
 	    // Generate the report using CSV format with monthly summary
 	    reportGenerator.exportToCsv(
@@ -501,9 +558,14 @@ public class AttendanceAppGUI extends JFrame {
 	    );
 	    
 	    // Also create Excel version for better formatting
+	    writeReportWorkbook(reportFilePath.replace(".xlsx", ".csv"), reportFilePath);
+	}
+	
+	// Excel version of the monthly summary CSV
+	private void writeReportWorkbook(String csvPath, String reportFilePath) {
 	    try {
 	        // Read the CSV and create Excel file
-	        java.io.BufferedReader reader = new java.io.BufferedReader(new java.io.FileReader(reportFilePath.replace(".xlsx", ".csv")));
+	        java.io.BufferedReader reader = new java.io.BufferedReader(new java.io.FileReader(csvPath));
 	        org.apache.poi.xssf.usermodel.XSSFWorkbook workbook = new org.apache.poi.xssf.usermodel.XSSFWorkbook();
 	        org.apache.poi.ss.usermodel.Sheet sheet = workbook.createSheet("Monthly Summary");
 	        
@@ -565,7 +627,7 @@ public class AttendanceAppGUI extends JFrame {
 	}
 	
 	private void exportMergedFile(ActionEvent e) {
-		if (mergeResult == null) {
+		if (snapshot.get().isEmpty()) {
 			configWizardPanel.setStatusMessage("Please process data first!", true);
 			return;
 		}
@@ -694,9 +756,11 @@ public class AttendanceAppGUI extends JFrame {
 	
 	// Method to generate and load monthly report directly
 	private void generateAndLoadMonthlyReport() {
-	    if (mergeResult == null || reportViewerPanel == null) {
+	    final MergeSnapshot current = snapshot.get();
+	    if (current.isEmpty() || reportViewerPanel == null) {
 	        return;
 	    }
+	    final AttendanceMerger.MergeResult mergeResult = current.result;
 	    
 	    // Get configuration from config panel
 	    final List<Integer> finalHolidays = configWizardPanel.getHolidays();
@@ -722,59 +786,32 @@ public class AttendanceAppGUI extends JFrame {
 	        @Override
 	        protected Void doInBackground() throws Exception {
 	            try {
-	                List<String[]> reportData = new ArrayList<>();
-	                List<String> headers = new ArrayList<>();
-	                
-	                // Add headers for monthly summary (one row per employee)
-	                headers.add("Employee Code");
-	                headers.add("Total Working Days");
-	                headers.add("Total Full Days");
-	                headers.add("Half Days Due To Duration");
-	                headers.add("Half Days Due To PunchMiss");
-	                headers.add("Half Days Due To Lates");
-	                headers.add("Total Half Days");
-	                headers.add("Total Lates");
-	                headers.add("Total Absent");
-	                headers.add("Total Punch Missed");
-	                headers.add("Total OT Days");
-	                headers.add("Total Half OT Days");
-	                headers.add("Total OT Hours");
+	                List<String> headers = Arrays.asList(AttendanceReportGenerator.SUMMARY_HEADERS);
 	                
-	                // Calculate metrics for each employee
-	                AttendanceReportGenerator generator = new AttendanceReportGenerator();
+	                // Rows from the merge pipeline are used once; later reloads recompute them
+	                List<String[]> pipelineRows = pipelineReportRows;
+	                pipelineReportRows = null;
 	                
-	                for (AttendanceMerger.EmployeeData emp : mergeResult.allEmployees) {
-	                    AttendanceReportGenerator.Metrics metrics = 
-	                        generator.computeMetrics(emp, mergeResult.monthDays, finalHolidays, finalYear, finalMonth);
-	                    
-	                    String[] row = new String[headers.size()];
-	                    int i = 0;
-	                    row[i++] = emp.empId;
-	                    row[i++] = String.valueOf(metrics.totalWorkingDays);
-	                    row[i++] = String.valueOf(metrics.totalFullDays);
-	                    row[i++] = String.valueOf(metrics.halfDaysDueToDuration);
-	                    row[i++] = String.valueOf(metrics.halfDaysDueToPunchMiss);
-	                    row[i++] = String.valueOf(metrics.halfDaysDueToLate);
-	                    row[i++] = String.valueOf(metrics.halfDays);
-	                    row[i++] = String.valueOf(metrics.totalLates);
-	                    row[i++] = String.valueOf(metrics.totalAbsent);
-	                    row[i++] = String.valueOf(metrics.totalPunchMissed);
-	                    row[i++] = String.valueOf(metrics.totalOTDays);
-	                    row[i++] = String.valueOf(metrics.totalHalfOTDays);
-	                    
-	                    // Calculate total OT hours (convert minutes to hours)
-	                    double totalOTMinutes = metrics.workingDayOTMinutes + metrics.weekendFullOTMinutes + metrics.weekendHalfOTMinutes;
-	                    double totalOTHours = Math.round((totalOTMinutes / 60.0) * 100.0) / 100.0;
-	                    row[i++] = String.format("%.2f", totalOTHours);
+	                List<String[]> reportData = new ArrayList<>();
+	                if (pipelineRows != null) {
+	                    reportData.addAll(pipelineRows);
+	                } else {
+	                    // Calculate metrics for each employee
+	                    AttendanceReportGenerator generator = new AttendanceReportGenerator();
+	                    MonthCalendar calendar = MonthCalendar.of(finalYear, finalMonth, finalHolidays);
 	                    
-	                    reportData.add(row);
+	                    for (AttendanceMerger.EmployeeData emp : mergeResult.allEmployees) {
+	                        AttendanceReportGenerator.Metrics metrics = 
+	                            generator.computeMetrics(emp, mergeResult.monthDays, calendar);
+	                        reportData.add(AttendanceReportGenerator.summaryRow(emp, metrics));
+	                    }
 	                }
 	                
 	                // Load into report panel on EDT
 	                SwingUtilities.invokeLater(() -> {
 	                    String[][] dataArray = reportData.toArray(new String[0][]);
 	                    String[] headersArray = headers.toArray(new String[0]);
-	                    reportViewerPanel.loadReportData(dataArray, headersArray);
+	                    reportViewerPanel.loadReportData(dataArray, headersArray, current.version);
 	                    
 	                    // Show success message
 	                    JOptionPane.showMessageDialog(AttendanceAppGUI.this,
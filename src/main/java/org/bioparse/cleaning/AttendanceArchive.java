@@ -0,0 +1,501 @@
+package org.bioparse.cleaning;
+
+import org.bioparse.cleaning.AttendanceMerger.EmployeeData;
+import org.bioparse.cleaning.AttendanceMerger.MergeResult;
+import org.bioparse.cleaning.AttendanceStore.Status;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Attendance history kept as one file per month ("2024-10.bpa"), so past
+ * months can be looked up without re-parsing their merged workbooks.
+ *
+ * A month file is columnar with fixed-width cells, in the encodings of
+ * {@link AttendanceStore}: an employee table and an index sorted by id,
+ * then a Status byte, a Shift code and six time shorts per employee-day.
+ * Text that has no encoding (odd statuses, times like "24:00+") is kept in a
+ * sorted overflow table. {@link #open} memory-maps every file read-only and
+ * reads only the header, so opening years of history costs a few
+ * milliseconds and almost no heap; cells are read from the mapping on access.
+ *
+ * Only the eight standard rows of the Monthly Status Report are archived;
+ * other labels stay in the merged workbook.
+ */
+public class AttendanceArchive {
+
+    private static final int MAGIC = 0x42504d41; // "BPMA"
+    // Bump when the file layout changes
+    private static final int FORMAT_VERSION = 1;
+    private static final String SUFFIX = ".bpa";
+
+    private static final int COLUMN_COUNT = AttendanceStore.COLUMNS.length;
+
+    // Header ints: magic, version, year, month, monthDays, employees, width,
+    // shift names, overflow cells, then the section offsets
+    private static final int H_YEAR = 2, H_MONTH = 3, H_MONTH_DAYS = 4, H_EMPLOYEES = 5, H_WIDTH = 6,
+            H_SHIFTS = 7, H_OVERFLOW = 8, H_RECORDS = 9, H_INDEX = 10, H_LENGTHS = 11, H_SHIFT_NAMES = 12,
+            H_STATUS = 13, H_SHIFT = 14, H_TIMES = 15, H_OVERFLOW_TABLE = 16, H_STRINGS = 17;
+    private static final int HEADER_BYTES = 18 * 4;
+
+    private final Map<Integer, Month> months;
+
+    private AttendanceArchive(Map<Integer, Month> months) {
+        this.months = months;
+    }
+
+    /**
+     * Map every month file in a directory. Files that are not archives, or
+     * are of another format version, are reported and skipped.
+     */
+    public static AttendanceArchive open(File dir) throws IOException {
+        Map<Integer, Month> months = new TreeMap<>();
+        File[] files = dir.listFiles(f -> f.isFile() && f.getName().endsWith(SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                    if (ch.size() < HEADER_BYTES) {
+                        System.out.println("⚠️  Skipping truncated archive file " + file);
+                        continue;
+                    }
+                    // The mapping stays valid after the channel is closed
+                    Month month = new Month(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+                    if (month.buf.getInt(0) != MAGIC || month.buf.getInt(4) != FORMAT_VERSION) {
+                        System.out.println("⚠️  Skipping " + file + ": not an archive of this version");
+                        continue;
+                    }
+                    months.put(month.year() * 12 + month.month() - 1, month);
+                }
+            }
+        }
+        return new AttendanceArchive(months);
+    }
+
+    /** Archived months, oldest first. */
+    public List<Month> months() {
+        return Collections.unmodifiableList(new ArrayList<>(months.values()));
+    }
+
+    /** One month, or null if it is not archived. */
+    public Month month(int year, int month) {
+        return months.get(year * 12 + month - 1);
+    }
+
+    /** The file a month is archived in. */
+    public static File monthFile(File dir, int year, int month) {
+        return new File(dir, String.format("%04d-%02d%s", year, month, SUFFIX));
+    }
+
+    /**
+     * Write a merged month into the archive, replacing an earlier archive of
+     * the same month. Failures are reported and otherwise ignored; returns
+     * the file, or null if it was not written.
+     */
+    public static File write(File dir, MergeResult result) {
+        File file = monthFile(dir, result.year, result.month);
+        File tmp = new File(dir, file.getName() + ".tmp");
+        try {
+            Files.createDirectories(dir.toPath());
+            long started = System.nanoTime();
+            MonthWriter month = new MonthWriter(result);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+                month.writeTo(out);
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            System.out.printf("✓ Archived %d employees of %02d/%d to %s in %,d ms%n", result.allEmployees.size(),
+                    result.month, result.year, file, (System.nanoTime() - started) / 1_000_000);
+            return file;
+        } catch (IOException | RuntimeException ex) {
+            System.out.println("⚠️  Could not archive " + result.month + "/" + result.year + " to " + file + ": "
+                    + ex.getMessage());
+            tmp.delete();
+            return null;
+        }
+    }
+
+    /**
+     * A read-only view of one archived month. Employees are addressed by
+     * their position in the merged output; {@link #indexOf} finds one by id.
+     * Safe to share between threads.
+     */
+    public static class Month {
+        private final MappedByteBuffer buf;
+        private final int employees, width;
+        private final int records, index, lengths, status, shift, times, overflow, overflowCount, strings;
+        private final String[] shiftNames;
+
+        private Month(MappedByteBuffer buf) {
+            this.buf = buf;
+            this.employees = header(H_EMPLOYEES);
+            this.width = header(H_WIDTH);
+            this.records = header(H_RECORDS);
+            this.index = header(H_INDEX);
+            this.lengths = header(H_LENGTHS);
+            this.status = header(H_STATUS);
+            this.shift = header(H_SHIFT);
+            this.times = header(H_TIMES);
+            this.overflow = header(H_OVERFLOW_TABLE);
+            this.overflowCount = header(H_OVERFLOW);
+            this.strings = header(H_STRINGS);
+            this.shiftNames = new String[header(H_SHIFTS)];
+        }
+
+        private int header(int field) {
+            return buf.getInt(field * 4);
+        }
+
+        public int year() {
+            return header(H_YEAR);
+        }
+
+        public int month() {
+            return header(H_MONTH);
+        }
+
+        public int monthDays() {
+            return header(H_MONTH_DAYS);
+        }
+
+        public int size() {
+            return employees;
+        }
+
+        public String empId(int emp) {
+            return string(records + emp * 16);
+        }
+
+        public String empName(int emp) {
+            return string(records + emp * 16 + 8);
+        }
+
+        /** Position of the employee with an id, or -1. */
+        public int indexOf(String empId) {
+            if (empId == null)
+                return -1;
+            int lo = 0, hi = employees - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int emp = buf.getInt(index + mid * 4);
+                String id = empId(emp);
+                int cmp = id == null ? 1 : id.compareTo(empId);
+                if (cmp < 0) {
+                    lo = mid + 1;
+                } else if (cmp > 0) {
+                    hi = mid - 1;
+                } else {
+                    return emp;
+                }
+            }
+            return -1;
+        }
+
+        public Status status(int emp, int day) {
+            if (day >= length(emp, AttendanceStore.STATUS))
+                return Status.NULL;
+            return Status.ofCode(buf.get(status + cell(emp, day)));
+        }
+
+        /**
+         * Encoded time cell of a time column (IN_TIME to OT), as
+         * {@link AttendanceStore#time} returns it.
+         */
+        public short time(int emp, int col, int day) {
+            if (day >= length(emp, col))
+                return AttendanceStore.NULL;
+            return buf.getShort(times + ((col - AttendanceStore.IN_TIME) * employees * width + cell(emp, day)) * 2);
+        }
+
+        /** The original text of a cell. */
+        public String text(int emp, int col, int day) {
+            if (day >= length(emp, col))
+                return null;
+            if (col == AttendanceStore.STATUS) {
+                Status s = status(emp, day);
+                return s == Status.OTHER ? overflow(emp, col, day) : s.text;
+            }
+            if (col == AttendanceStore.SHIFT) {
+                int code = buf.getShort(shift + cell(emp, day) * 2);
+                return code < 0 ? null : shiftName(code);
+            }
+            short v = time(emp, col, day);
+            if (v == AttendanceStore.EMPTY)
+                return "";
+            if (v == AttendanceStore.NULL)
+                return null;
+            if (v == AttendanceStore.OTHER)
+                return overflow(emp, col, day);
+            return AttendanceStore.formatTime(v);
+        }
+
+        /** An employee decoded onto the heap, with the archived rows in Master sheet order. */
+        public EmployeeData employee(int emp) {
+            EmployeeData data = new EmployeeData();
+            data.empId = empId(emp);
+            data.empName = empName(emp);
+            for (int col = 0; col < COLUMN_COUNT; col++) {
+                int length = length(emp, col);
+                if (length < 0)
+                    continue;
+                List<String> values = new ArrayList<>(length);
+                for (int d = 0; d < length; d++) {
+                    values.add(text(emp, col, d));
+                }
+                data.dailyData.put(AttendanceStore.COLUMNS[col], values);
+            }
+            return data;
+        }
+
+        private int length(int emp, int col) {
+            return buf.getShort(lengths + (emp * COLUMN_COUNT + col) * 2);
+        }
+
+        private int cell(int emp, int day) {
+            return emp * width + day;
+        }
+
+        private String shiftName(int code) {
+            String name = shiftNames[code];
+            if (name == null) {
+                name = string(header(H_SHIFT_NAMES) + code * 8);
+                shiftNames[code] = name;
+            }
+            return name;
+        }
+
+        private String overflow(int emp, int col, int day) {
+            long key = (long) cell(emp, day) * COLUMN_COUNT + col;
+            int lo = 0, hi = overflowCount - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                long k = buf.getLong(overflow + mid * 16);
+                if (k < key) {
+                    lo = mid + 1;
+                } else if (k > key) {
+                    hi = mid - 1;
+                } else {
+                    return string(overflow + mid * 16 + 8);
+                }
+            }
+            return null;
+        }
+
+        // A string reference is an (offset, length) pair into the string heap; length -1 is null
+        private String string(int ref) {
+            int length = buf.getInt(ref + 4);
+            if (length < 0)
+                return null;
+            byte[] bytes = new byte[length];
+            buf.get(strings + buf.getInt(ref), bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Encodes a MergeResult into the month layout. Walks the employees twice
+     * (strings and lengths, then cells), so a spilled result is never held
+     * on the heap as a whole.
+     */
+    private static class MonthWriter {
+        private final MergeResult result;
+        private final int employees;
+        private int width;
+
+        private final ByteArrayOutputStream heap = new ByteArrayOutputStream();
+        private final Map<String, int[]> stringRefs = new HashMap<>();
+        private final int[] idRefs, nameRefs;
+        private final short[] lengths;
+        private final Map<String, Integer> shiftCodes = new LinkedHashMap<>();
+
+        private final byte[] status;
+        private final short[] shift;
+        private final short[][] times;
+        private final TreeMap<Long, int[]> overflow = new TreeMap<>();
+
+        MonthWriter(MergeResult result) {
+            this.result = result;
+            this.employees = result.allEmployees.size();
+            this.idRefs = new int[employees * 2];
+            this.nameRefs = new int[employees * 2];
+            this.lengths = new short[employees * COLUMN_COUNT];
+
+            for (int e = 0; e < employees; e++) {
+                EmployeeData emp = result.allEmployees.get(e);
+                ref(emp.empId, idRefs, e);
+                ref(emp.empName, nameRefs, e);
+                for (int col = 0; col < COLUMN_COUNT; col++) {
+                    List<String> values = emp.dailyData.get(AttendanceStore.COLUMNS[col]);
+                    lengths[e * COLUMN_COUNT + col] = (short) (values == null ? -1 : values.size());
+                    if (values != null)
+                        width = Math.max(width, values.size());
+                }
+            }
+
+            status = new byte[employees * width];
+            shift = new short[employees * width];
+            times = new short[AttendanceStore.SHIFT - AttendanceStore.IN_TIME][employees * width];
+            for (int e = 0; e < employees; e++) {
+                EmployeeData emp = result.allEmployees.get(e);
+                for (int col = 0; col < COLUMN_COUNT; col++) {
+                    List<String> values = emp.dailyData.get(AttendanceStore.COLUMNS[col]);
+                    if (values == null)
+                        continue;
+                    for (int d = 0; d < values.size(); d++) {
+                        encode(col, e * width + d, values.get(d));
+                    }
+                }
+            }
+        }
+
+        private void encode(int col, int cell, String value) {
+            if (col == AttendanceStore.STATUS) {
+                Status code = Status.of(value);
+                if (code == Status.OTHER)
+                    overflow.put((long) cell * COLUMN_COUNT + col, ref(value));
+                status[cell] = (byte) code.ordinal();
+            } else if (col == AttendanceStore.SHIFT) {
+                if (value == null) {
+                    shift[cell] = -1;
+                } else {
+                    Integer code = shiftCodes.get(value);
+                    if (code == null) {
+                        code = shiftCodes.size();
+                        if (code > Short.MAX_VALUE)
+                            throw new IllegalStateException("Too many distinct shifts");
+                        shiftCodes.put(value, code);
+                    }
+                    shift[cell] = code.shortValue();
+                }
+            } else {
+                short v = AttendanceStore.encodeTime(value);
+                if (v == AttendanceStore.OTHER)
+                    overflow.put((long) cell * COLUMN_COUNT + col, ref(value));
+                times[col - AttendanceStore.IN_TIME][cell] = v;
+            }
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            Integer[] sorted = new Integer[employees];
+            for (int e = 0; e < employees; e++) {
+                sorted[e] = e;
+            }
+            // Ids sort as Strings; employees without an id go last
+            String[] ids = new String[employees];
+            for (int e = 0; e < employees; e++) {
+                ids[e] = result.allEmployees.get(e).empId;
+            }
+            Arrays.sort(sorted, (a, b) -> ids[a] == null ? (ids[b] == null ? 0 : 1)
+                    : ids[b] == null ? -1 : ids[a].compareTo(ids[b]));
+            int[][] shiftRefs = new int[shiftCodes.size()][];
+            for (Map.Entry<String, Integer> entry : shiftCodes.entrySet()) {
+                shiftRefs[entry.getValue()] = ref(entry.getKey());
+            }
+
+            int cells = employees * width;
+            int recordsAt = HEADER_BYTES;
+            int indexAt = recordsAt + employees * 16;
+            int lengthsAt = indexAt + employees * 4;
+            int shiftNamesAt = lengthsAt + lengths.length * 2;
+            int statusAt = shiftNamesAt + shiftRefs.length * 8;
+            // Keep the short columns aligned
+            int shiftAt = (statusAt + cells + 1) & ~1;
+            int timesAt = shiftAt + cells * 2;
+            int overflowAt = (timesAt + times.length * cells * 2 + 7) & ~7;
+            int stringsAt = overflowAt + overflow.size() * 16;
+            long total = (long) stringsAt + heap.size();
+            if (total > Integer.MAX_VALUE)
+                throw new IOException("Month too large to archive (" + total + " bytes)");
+
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(result.year);
+            out.writeInt(result.month);
+            out.writeInt(result.monthDays);
+            out.writeInt(employees);
+            out.writeInt(width);
+            out.writeInt(shiftRefs.length);
+            out.writeInt(overflow.size());
+            for (int offset : new int[] { recordsAt, indexAt, lengthsAt, shiftNamesAt, statusAt, shiftAt, timesAt,
+                    overflowAt, stringsAt }) {
+                out.writeInt(offset);
+            }
+
+            for (int e = 0; e < employees; e++) {
+                out.writeInt(idRefs[e * 2]);
+                out.writeInt(idRefs[e * 2 + 1]);
+                out.writeInt(nameRefs[e * 2]);
+                out.writeInt(nameRefs[e * 2 + 1]);
+            }
+            for (int e : sorted) {
+                out.writeInt(e);
+            }
+            for (short length : lengths) {
+                out.writeShort(length);
+            }
+            for (int[] ref : shiftRefs) {
+                out.writeInt(ref[0]);
+                out.writeInt(ref[1]);
+            }
+            out.write(status);
+            pad(out, shiftAt);
+            for (short code : shift) {
+                out.writeShort(code);
+            }
+            for (short[] column : times) {
+                for (short v : column) {
+                    out.writeShort(v);
+                }
+            }
+            pad(out, overflowAt);
+            for (Map.Entry<Long, int[]> entry : overflow.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeInt(entry.getValue()[0]);
+                out.writeInt(entry.getValue()[1]);
+            }
+            heap.writeTo(out);
+        }
+
+        private static void pad(DataOutputStream out, int offset) throws IOException {
+            while (out.size() < offset) {
+                out.writeByte(0);
+            }
+        }
+
+        private void ref(String s, int[] refs, int e) {
+            int[] ref = ref(s);
+            refs[e * 2] = ref[0];
+            refs[e * 2 + 1] = ref[1];
+        }
+
+        private int[] ref(String s) {
+            if (s == null)
+                return new int[] { 0, -1 };
+            int[] ref = stringRefs.get(s);
+            if (ref == null) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                ref = new int[] { heap.size(), bytes.length };
+                heap.write(bytes, 0, bytes.length);
+                stringRefs.put(s, ref);
+            }
+            return ref;
+        }
+    }
+}
@@ -1,16 +1,22 @@
 package org.bioparse.cleaning;
 
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 
-import java.io.FileInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
 import java.io.FileOutputStream;
-import java.time.YearMonth;
-import java.time.LocalDate;
-import java.time.DayOfWeek;
-import java.time.format.TextStyle;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class AttendanceMerger {
 
@@ -18,13 +24,23 @@ public class AttendanceMerger {
         String empId;
         String empName;
         public Map<String, List<String>> dailyData = new LinkedHashMap<>();
+
+        // Set when this is a view of an AttendanceStore row
+        AttendanceStore store;
+        int row;
     }
 
-    public static class MergeResult {
-        public List<EmployeeData> allEmployees;
-        public int monthDays;
-        public int year;
-        public int month;
+    public static class MergeResult implements Closeable {
+        public final List<EmployeeData> allEmployees;
+        public final int monthDays;
+        public final int year;
+        public final int month;
+
+        // Case-insensitive lookups into allEmployees, built by index()
+        private volatile Map<String, Integer> byId;
+        private volatile Map<String, int[]> byName;
+        private volatile DayIndex days;
+        private volatile StatusBitmaps statuses;
 
         public MergeResult(List<EmployeeData> allEmployees, int monthDays, int year, int month) {
             this.allEmployees = allEmployees;
@@ -32,426 +48,513 @@ public class AttendanceMerger {
             this.year = year;
             this.month = month;
         }
-    }
-
-    public static MergeResult merge(String inputFilePath, String outputFilePath, List<Integer> holidays)
-            throws Exception {
-        FileInputStream fis = new FileInputStream(inputFilePath);
-        Workbook inWb;
 
-        if (inputFilePath.toLowerCase().endsWith(".xls")) {
-            inWb = new HSSFWorkbook(fis);
-        } else {
-            inWb = new XSSFWorkbook(fis);
-        }
-
-        int monthDays = 31, year = Calendar.getInstance().get(Calendar.YEAR), month = 1;
-
-        // Month/year detection
-        outer: for (int s = 0; s < inWb.getNumberOfSheets(); s++) {
-            Sheet sheet = inWb.getSheetAt(s);
-            for (Row row : sheet) {
-                if (row == null)
-                    continue;
-                for (int col = 0; col < row.getLastCellNum(); col++) {
-                    Cell c = row.getCell(col, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-                    if (c != null && c.getCellType() == CellType.STRING) {
-                        String val = c.getStringCellValue().trim();
-
-                        boolean matchesMonthDayYear = val.matches("(?i)^(Jan|Feb|Mar|Apr|May|Jun|Jul|Aug|Sep|Oct|Nov|Dec)[a-z]*\\s+\\d{1,2}\\s+\\d{4}.*");
-                        boolean matchesMonthYear = val.matches("(?i)^(Jan|Feb|Mar|Apr|May|Jun|Jul|Aug|Sep|Oct|Nov|Dec)[a-z]*\\s+\\d{4}.*");
-
-                        if (matchesMonthDayYear || matchesMonthYear) {
-                            String cleanVal = val.replaceAll("\\s+", " ").trim();
-                            String[] parts = cleanVal.split(" ");
-                            String monthName = parts[0];
-                            
-                            try {
-                                int detectedYear = year;
-                                
-                                if (matchesMonthDayYear && parts.length >= 3) {
-                                    detectedYear = Integer.parseInt(parts[2]);
-                                } else if (matchesMonthYear && parts.length >= 2) {
-                                    detectedYear = Integer.parseInt(parts[1]);
-                                }
-                                
-                                int currentYear = Calendar.getInstance().get(Calendar.YEAR);
-                                if (detectedYear >= currentYear - 1 && detectedYear <= currentYear + 1) {
-                                    year = detectedYear;
-                                    month = monthNameToNumber(monthName);
-                                    monthDays = YearMonth.of(year, month).lengthOfMonth();
-
-                                    LocalDate firstDay = LocalDate.of(year, month, 1);
-                                    System.out.println("✓ Detected: " + cleanVal + " → Year=" + year + 
-                                                     ", Month=" + month + " (" + monthName + "), " +
-                                                     "Days=" + monthDays + ", Starts: " + firstDay.getDayOfWeek());
-                                    break outer;
-                                }
-                            } catch (Exception ex) {
-                                System.out.println("⚠️  Could not parse date from: " + val);
-                            }
-                        }
-                    }
+        /**
+         * Build the employee id and name lookups, the {@link DayIndex} and the
+         * {@link StatusBitmaps}.
+         * The accessors build them on first use, so runs that never query
+         * (and spilled lists) do not pay for them; allEmployees must not
+         * change afterwards.
+         */
+        public synchronized void index() {
+            if (byId != null)
+                return;
+            Map<String, Integer> ids = new HashMap<>(allEmployees.size() * 2);
+            Map<String, int[]> names = new HashMap<>(allEmployees.size() * 2);
+            for (int i = 0; i < allEmployees.size(); i++) {
+                EmployeeData emp = allEmployees.get(i);
+                if (emp.empId != null) {
+                    // The first employee with an id wins, as in a scan
+                    ids.putIfAbsent(lookupKey(emp.empId), i);
+                }
+                if (emp.empName != null) {
+                    int at = i;
+                    names.merge(lookupKey(emp.empName), new int[] { i }, (rows, one) -> {
+                        int[] grown = Arrays.copyOf(rows, rows.length + 1);
+                        grown[rows.length] = at;
+                        return grown;
+                    });
                 }
             }
+            days = new DayIndex(allEmployees);
+            statuses = new StatusBitmaps(days);
+            byName = names;
+            byId = ids;
         }
 
-        Workbook outWb = new XSSFWorkbook();
-        Sheet outSheet = outWb.createSheet("Master");
+        /** InTime, OutTime and Status of all employees, day by day. */
+        public DayIndex days() {
+            if (byId == null)
+                index();
+            return days;
+        }
 
-        CellStyle borderStyle = outWb.createCellStyle();
-        borderStyle.setBorderTop(BorderStyle.THIN);
-        borderStyle.setBorderBottom(BorderStyle.THIN);
-        borderStyle.setBorderLeft(BorderStyle.THIN);
-        borderStyle.setBorderRight(BorderStyle.THIN);
+        /** Per-day bitmaps of the employees with each status. */
+        public StatusBitmaps statuses() {
+            if (byId == null)
+                index();
+            return statuses;
+        }
 
-        CellStyle weekendStyle = outWb.createCellStyle();
-        weekendStyle.cloneStyleFrom(borderStyle);
-        weekendStyle.setFillForegroundColor(IndexedColors.LIGHT_YELLOW.getIndex());
-        weekendStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+        /** The employee with an id, ignoring case and surrounding spaces, or null. */
+        public EmployeeData findById(String empId) {
+            if (byId == null)
+                index();
+            Integer row = empId != null ? byId.get(lookupKey(empId)) : null;
+            return row != null ? allEmployees.get(row) : null;
+        }
 
-        CellStyle holidayStyle = outWb.createCellStyle();
-        holidayStyle.cloneStyleFrom(borderStyle);
-        holidayStyle.setFillForegroundColor(IndexedColors.LIGHT_ORANGE.getIndex());
-        holidayStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+        /** Employees with a name, ignoring case and surrounding spaces, in merge order. */
+        public List<EmployeeData> findByName(String empName) {
+            if (byId == null)
+                index();
+            int[] rows = empName != null ? byName.get(lookupKey(empName)) : null;
+            if (rows == null)
+                return Collections.emptyList();
+            List<EmployeeData> found = new ArrayList<>(rows.length);
+            for (int row : rows) {
+                found.add(allEmployees.get(row));
+            }
+            return found;
+        }
 
-        List<EmployeeData> allEmployees = new ArrayList<>();
-        int outRowNum = 0;
+        private static String lookupKey(String s) {
+            return s.trim().toLowerCase(Locale.ROOT);
+        }
 
-        for (int s = 0; s < inWb.getNumberOfSheets(); s++) {
-            Sheet sheet = inWb.getSheetAt(s);
-            if (sheet.getSheetName().equalsIgnoreCase("Master"))
-                continue;
+        /**
+         * Delete the temp file of a spilled employee list (see
+         * {@link MergeOptions#heapBudgetMB}); nothing to do for results kept
+         * in memory. The result must not be used afterwards.
+         */
+        @Override
+        public void close() throws IOException {
+            if (allEmployees instanceof Closeable) {
+                ((Closeable) allEmployees).close();
+            }
+        }
+    }
 
-            System.out.println("\n========================================");
-            System.out.println("Processing sheet: " + sheet.getSheetName());
-            System.out.println("========================================");
-
-            // STEP 1: Unmerge ALL cells in this sheet
-            unmergeAllCells(sheet);
-
-            // STEP 2: Remove completely empty columns
-            Map<Integer, Integer> columnMapping = removeEmptyColumnsAndGetMapping(sheet);
-            
-            System.out.println("Column mapping after cleanup: " + columnMapping);
-
-            EmployeeData current = null;
-
-            for (Row row : sheet) {
-                if (row == null)
-                    continue;
-                Cell first = row.getCell(0, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-                if (first == null || first.getCellType() != CellType.STRING)
-                    continue;
-                String firstVal = first.getStringCellValue().trim();
-
-                if (firstVal.isEmpty() || firstVal.startsWith("Department:")
-                        || firstVal.startsWith("Monthly Status Report") || firstVal.matches("^[A-Za-z]{3} .*\\d{4}.*"))
-                    continue;
-
-                // Start employee block
-                if (firstVal.equalsIgnoreCase("Employee:")) {
-                    if (current != null && hasEssentialData(current)) {
-                        allEmployees.add(current);
-                        outRowNum = writeEmployee(current, outSheet, borderStyle, weekendStyle, holidayStyle, outRowNum,
-                                monthDays, holidays, year, month) + 3;
-                    }
+    /**
+     * Tuning switches for {@link #merge(String, String, List, MergeOptions)}.
+     */
+    public static class MergeOptions {
+        /**
+         * Read input through POI's event models (SAX for .xlsx, record events for .xls)
+         * instead of loading the workbook DOM.
+         */
+        public boolean streaming;
+
+        /**
+         * Number of sheets parsed concurrently on a ForkJoinPool when the workbook
+         * is loaded as a DOM. 1 keeps the single-threaded parse.
+         */
+        public int parallelism = 1;
+
+        /**
+         * Directory for parsed-input snapshots (see {@link ParseCache}). When set,
+         * an input whose content was merged before is not parsed again; only the
+         * output stages run, with the current holidays. Null disables it.
+         */
+        public String cacheDir;
+
+        /** Progress/cancellation callback, or null. */
+        public MergeProgress progress;
+
+        /** Rows between progress updates. */
+        public int progressInterval = 500;
+
+        /**
+         * Treat the input as a raw punch log (employee id, timestamp, terminal)
+         * and build InTime/OutTime per day from it (see {@link PunchLogReader}).
+         * Delimited files that look like punch logs are detected without it.
+         * Punches are reduced on {@link #parallelism} partitions.
+         */
+        public boolean punchLog;
+
+        /** Input files parsed concurrently in a batch merge (see {@link BatchMerger}). */
+        public int batchParallelism = 4;
+
+        /**
+         * Heap budget in MB for parsed employees. When set, the input is always
+         * streamed, employees beyond the budget are spilled to a temp file
+         * ({@link EmployeeSpillList}) and the Master sheet is written through
+         * SXSSF. 0 keeps everything in memory. A batch gives each file an
+         * equal share of half the budget and the combined result the other
+         * half (see {@link BatchMerger}).
+         */
+        public int heapBudgetMB;
+
+        /**
+         * Directory of the month archive (see {@link AttendanceArchive}). When
+         * set, every finished merge is also written there as its month file.
+         * Null disables it.
+         */
+        public String archiveDir;
+
+        /**
+         * Write the Master sheet through SXSSF: only the last
+         * {@link #masterRowWindow} rows are kept in memory, older rows are
+         * flushed to a temp file while parsing continues. Implied by
+         * {@link #heapBudgetMB}.
+         */
+        public boolean streamingOutput;
+
+        /** Master sheet rows kept in memory when the output is streamed. */
+        public int masterRowWindow = SXSSFWorkbook.DEFAULT_WINDOW_SIZE;
+
+        /** Gzip the temp files of a streamed Master sheet: less disk, a little more CPU. */
+        public boolean compressTempFiles = true;
+
+        /**
+         * Write the Master sheet as SpreadsheetML straight into the output
+         * zip ({@link XlsxWriter}) instead of through POI: no row window, no
+         * temp sheet file, no object model. Takes precedence over
+         * {@link #streamingOutput}.
+         */
+        public boolean directOutput;
+
+        MergeOptions copy() {
+            MergeOptions copy = new MergeOptions();
+            copy.streaming = streaming;
+            copy.parallelism = parallelism;
+            copy.cacheDir = cacheDir;
+            copy.progress = progress;
+            copy.progressInterval = progressInterval;
+            copy.punchLog = punchLog;
+            copy.batchParallelism = batchParallelism;
+            copy.heapBudgetMB = heapBudgetMB;
+            copy.archiveDir = archiveDir;
+            copy.streamingOutput = streamingOutput;
+            copy.masterRowWindow = masterRowWindow;
+            copy.compressTempFiles = compressTempFiles;
+            copy.directOutput = directOutput;
+            return copy;
+        }
+    }
 
-                    String empRaw = null;
-                    // Search for employee info in next columns (after empty column removal)
-                    for (int col = 1; col <= 10; col++) {
-                        Cell c = row.getCell(col, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-                        if (c != null) {
-                            String cellVal = c.toString().trim();
-                            if (!cellVal.isEmpty() && !isSummaryText(cellVal)) {
-                                // Look for pattern: number : name or just use first non-empty
-                                if (cellVal.matches(".*\\d+.*:.*") || empRaw == null) {
-                                    empRaw = cellVal;
-                                    if (cellVal.matches(".*\\d+.*:.*")) {
-                                        break; // Found the ID:Name pattern
-                                    }
-                                }
-                            }
-                        }
-                    }
+    // Rows of the first sheet searched for the month header before parsing starts
+    private static final int HEADER_PROBE_ROWS = 10;
 
-                    current = new EmployeeData();
-                    if (empRaw != null) {
-                        if (empRaw.contains(":")) {
-                            String[] parts = empRaw.split(":", 2);
-                            current.empId = parts[0].trim();
-                            current.empName = (parts.length > 1 ? parts[1].trim() : current.empId);
-                        } else {
-                            current.empId = empRaw;
-                            current.empName = empRaw;
-                        }
-                        System.out.println("\n✓ Found employee: " + current.empId + " : " + current.empName);
-                    } else {
-                        System.out.println("\n⚠️  Could not find employee info in row");
-                    }
-                    continue;
-                }
+    public static MergeResult merge(String inputFilePath, String outputFilePath, List<Integer> holidays)
+            throws Exception {
+        return merge(inputFilePath, outputFilePath, holidays, new MergeOptions());
+    }
 
-                if (current == null)
-                    continue;
-
-                String label = firstVal;
-
-                // Read data from consecutive columns (empty columns already removed)
-                List<String> values = new ArrayList<>();
-                
-                // Start from column 1 and read exactly monthDays values
-                for (int col = 1; col <= monthDays; col++) {
-                    Cell c = row.getCell(col, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-                    String cellValue = "";
-                    
-                    if (c != null) {
-                        cellValue = c.toString().trim();
-                        // Skip summary text
-                        if (isSummaryText(cellValue)) {
-                            cellValue = "";
-                        }
-                    }
-                    
-                    values.add(cellValue);
-                }
+    /**
+     * Receives each employee as soon as its block is parsed, together with the
+     * report month known at that point.
+     */
+    public interface EmployeeSink {
+        void accept(EmployeeData emp, int monthDays, int year, int month);
+    }
 
-                // Ensure exact monthDays
-                while (values.size() < monthDays) {
-                    values.add("");
-                }
-                if (values.size() > monthDays) {
-                    values = values.subList(0, monthDays);
-                }
+    /**
+     * Parse inputFilePath and write its Master sheet to outputFilePath. Close
+     * the result when done with it, in case its employees spilled to disk.
+     */
+    public static MergeResult merge(String inputFilePath, String outputFilePath, List<Integer> holidays,
+            MergeOptions options) throws Exception {
+        MergeResult result;
+        try (MasterWriter master = new MasterWriter(outputFilePath, options)) {
+            result = parse(inputFilePath, options,
+                    (emp, days, year, month) -> master.write(emp, days, holidays, year, month));
+            master.finish();
+        }
+        if (options.archiveDir != null) {
+            AttendanceArchive.write(new File(options.archiveDir), result);
+        }
 
-                // Only store valid data types
-                if (isValidDataType(label)) {
-                    current.dailyData.put(label, values);
-                    
-                    // Count non-empty values for verification
-                    long nonEmptyCount = values.stream().filter(v -> !v.isEmpty()).count();
-                    System.out.println("  " + label + ": " + nonEmptyCount + " non-empty values out of " + monthDays + " days");
-                }
+        System.out.println("\n========================================");
+        System.out.println("✓ Master file created at: " + outputFilePath);
+        System.out.println("✓ Total employees processed: " + result.allEmployees.size());
+        System.out.println("========================================");
+        return result;
+    }
 
-                // Finalize employee when we have Shift data
-                if (label.equalsIgnoreCase("Shift")) {
-                    if (hasEssentialData(current)) {
-                        allEmployees.add(current);
-                        outRowNum = writeEmployee(current, outSheet, borderStyle, weekendStyle, holidayStyle, outRowNum,
-                                monthDays, holidays, year, month) + 3;
-                        current = null;
-                    }
+    /**
+     * Parse an input file (or a batch, see {@link BatchMerger}), handing every
+     * employee to the sink in input order.
+     * Nothing is written; merge and {@link MergePipeline} decide what to do
+     * with the employees.
+     */
+    static MergeResult parse(String inputFilePath, MergeOptions options, EmployeeSink sink) throws Exception {
+        if (BatchMerger.isBatch(inputFilePath)) {
+            return BatchMerger.parse(inputFilePath, options, sink);
+        }
+
+        ParseCache cache = null;
+        String cacheKey = null;
+        if (options.cacheDir != null) {
+            cache = new ParseCache(new File(options.cacheDir));
+            cacheKey = ParseCache.fingerprint(new File(inputFilePath), options);
+            MergeResult cached = cache.load(cacheKey);
+            if (cached != null) {
+                System.out.println("✓ Input unchanged since last merge, using cached parse: " + cacheKey);
+                cached = collected(cached, options);
+                for (EmployeeData emp : cached.allEmployees) {
+                    sink.accept(emp, cached.monthDays, cached.year, cached.month);
                 }
+                return cached;
             }
+        }
 
-            // Handle any remaining employee data
-            if (current != null && hasEssentialData(current)) {
-                allEmployees.add(current);
-                outRowNum = writeEmployee(current, outSheet, borderStyle, weekendStyle, holidayStyle, outRowNum,
-                        monthDays, holidays, year, month) + 3;
+        ProgressTracker tracker = options.progress != null
+                ? new ProgressTracker(options.progress, options.progressInterval)
+                : null;
+        long started = System.nanoTime();
+        MergeResult result;
+        if (options.punchLog
+                || DelimitedReader.accepts(inputFilePath) && PunchLogReader.looksLikePunchLog(inputFilePath)) {
+            result = collected(PunchLogReader.read(inputFilePath, options.parallelism, tracker), options);
+            for (EmployeeData emp : result.allEmployees) {
+                sink.accept(emp, result.monthDays, result.year, result.month);
             }
+        } else if (options.streaming || options.heapBudgetMB > 0 || DelimitedReader.accepts(inputFilePath)) {
+            // Delimited text has no workbook to load, so it always streams
+            result = parseStreaming(inputFilePath, tracker, sink, newEmployeeList(options));
+        } else {
+            result = parseWorkbook(inputFilePath, options, tracker, sink);
         }
+        long elapsedMs = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+        System.out.println(String.format("✓ Parsed %d employees in %,d ms (%,.0f employees/s)",
+                result.allEmployees.size(), elapsedMs, result.allEmployees.size() * 1000.0 / elapsedMs));
 
-        inWb.close();
-        fis.close();
-
-        FileOutputStream fos = new FileOutputStream(outputFilePath);
-        outWb.write(fos);
-        fos.close();
-        outWb.close();
+        if (cache != null) {
+            cache.store(cacheKey, result);
+        }
+        return result;
+    }
 
-        System.out.println("\n========================================");
-        System.out.println("✓ Master file created at: " + outputFilePath);
-        System.out.println("✓ Total employees processed: " + allEmployees.size());
-        System.out.println("========================================");
-        
-        return new MergeResult(allEmployees, monthDays, year, month);
+    /**
+     * The list parsed employees are collected in: spilling to disk past
+     * {@link MergeOptions#heapBudgetMB}, otherwise the columnar
+     * {@link AttendanceStore}.
+     */
+    static List<EmployeeData> newEmployeeList(MergeOptions options) {
+        return options.heapBudgetMB > 0 ? new EmployeeSpillList((long) options.heapBudgetMB << 20)
+                : new AttendanceStore();
     }
 
     /**
-     * Unmerge all cells in a sheet first
+     * Move an already built result into the list {@link #newEmployeeList} picks.
      */
-    private static void unmergeAllCells(Sheet sheet) {
-        int mergedRegionsCount = sheet.getNumMergedRegions();
-        for (int i = mergedRegionsCount - 1; i >= 0; i--) {
-            sheet.removeMergedRegion(i);
-        }
-        System.out.println("Step 1: Unmerged " + mergedRegionsCount + " regions");
+    static MergeResult collected(MergeResult result, MergeOptions options) {
+        List<EmployeeData> employees = newEmployeeList(options);
+        employees.addAll(result.allEmployees);
+        return new MergeResult(employees, result.monthDays, result.year, result.month);
     }
 
     /**
-     * CRITICAL METHOD: Remove completely empty columns from the sheet.
-     * A column is considered empty if ALL rows in important data rows are empty.
-     * Returns a mapping of old column index to new column index.
+     * Workbook for the Master sheet: SXSSF, which keeps only a window of rows
+     * in memory, when the output is streamed or a heap budget is set.
      */
-    private static Map<Integer, Integer> removeEmptyColumnsAndGetMapping(Sheet sheet) {
-        // Find max column count
-        int maxCol = 0;
-        for (Row row : sheet) {
-            if (row != null && row.getLastCellNum() > maxCol) {
-                maxCol = row.getLastCellNum();
-            }
+    static Workbook newMasterWorkbook(MergeOptions options) {
+        if (options.streamingOutput || options.heapBudgetMB > 0) {
+            return new SXSSFWorkbook(null, Math.max(1, options.masterRowWindow), options.compressTempFiles);
         }
+        return new XSSFWorkbook();
+    }
 
-        // Find all employee data rows (rows starting with valid labels)
-        List<Row> dataRows = new ArrayList<>();
-        for (Row row : sheet) {
-            if (row != null) {
-                Cell first = row.getCell(0, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-                if (first != null && first.getCellType() == CellType.STRING) {
-                    String label = first.getStringCellValue().trim();
-                    if (label.equalsIgnoreCase("Employee:") || isValidDataType(label)) {
-                        dataRows.add(row);
+    private static MergeResult parseWorkbook(String inputFilePath, MergeOptions options, ProgressTracker tracker,
+            EmployeeSink sink) throws Exception {
+        // Opened read-only from the file; released even if parsing fails
+        try (WorkbookAccess access = WorkbookAccess.open(inputFilePath)) {
+            Workbook inWb = access.workbook();
+
+            List<EmployeeData> allEmployees = newEmployeeList(options);
+
+            List<Sheet> sheets = new ArrayList<>();
+            for (int s = 0; s < inWb.getNumberOfSheets(); s++) {
+                Sheet sheet = inWb.getSheetAt(s);
+                if (!sheet.getSheetName().equalsIgnoreCase("Master")) {
+                    sheets.add(sheet);
+                }
+            }
+
+            // The month header normally sits in the first rows of the first sheet;
+            // if it is not there the parser keeps looking as rows stream past
+            EmployeeBlockParser parser = new EmployeeBlockParser();
+            parser.setProgress(tracker);
+            parser.setTotalSheets(sheets.size());
+            int[] header = sheets.isEmpty() ? null : probeMonthHeader(sheets.get(0));
+            if (header != null) {
+                parser.presetMonth(header[0], header[1]);
+            }
+
+            if (options.parallelism > 1 && sheets.size() > 1 && header != null) {
+                // Per-sheet results come back in sheet order, so the sink sees
+                // exactly the same sequence as the single-threaded run
+                for (List<EmployeeData> sheetEmployees : parseSheetsParallel(sheets, header[0], header[1],
+                        options.parallelism, tracker)) {
+                    for (EmployeeData emp : sheetEmployees) {
+                        allEmployees.add(emp);
+                        sink.accept(emp, parser.getMonthDays(), parser.getYear(), parser.getMonth());
                     }
                 }
+            } else {
+                parser.setListener(emp -> {
+                    allEmployees.add(emp);
+                    sink.accept(emp, parser.getMonthDays(), parser.getYear(), parser.getMonth());
+                });
+
+                for (Sheet sheet : sheets) {
+                    parseSheet(sheet, parser);
+                }
+                parser.printPoolStats();
             }
+
+            return new MergeResult(allEmployees, parser.getMonthDays(), parser.getYear(), parser.getMonth());
         }
+    }
 
-        System.out.println("Step 2: Analyzing " + maxCol + " columns across " + dataRows.size() + " data rows");
-
-        // Identify empty columns (columns that have NO data in ANY data row)
-        Set<Integer> emptyColumns = new HashSet<>();
-        for (int col = 1; col < maxCol; col++) { // Start from col 1, preserve col 0 (labels)
-            boolean hasData = false;
-            
-            for (Row row : dataRows) {
-                Cell cell = row.getCell(col, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-                if (cell != null) {
-                    String cellValue = cell.toString().trim();
-                    if (!cellValue.isEmpty() && !isSummaryText(cellValue)) {
-                        hasData = true;
-                        break;
+    /**
+     * Look for the month header in the first few rows of a sheet.
+     */
+    private static int[] probeMonthHeader(Sheet sheet) {
+        for (Row row : sheet) {
+            if (row.getRowNum() >= HEADER_PROBE_ROWS)
+                break;
+            for (Cell c : row) {
+                if (c.getCellType() == CellType.STRING) {
+                    int[] ym = TextClassifier.parseMonthHeader(c.getStringCellValue().trim());
+                    if (ym != null) {
+                        return ym;
                     }
                 }
             }
-            
-            if (!hasData) {
-                emptyColumns.add(col);
-            }
         }
+        return null;
+    }
 
-        System.out.println("Found " + emptyColumns.size() + " completely empty columns: " + emptyColumns);
+    /**
+     * Streaming parse: sheets are read through POI's event models (or the
+     * delimited-text tokenizer) and each employee block goes to the sink as
+     * soon as it is complete, so the input is never held in memory.
+     */
+    private static MergeResult parseStreaming(String inputFilePath, ProgressTracker tracker, EmployeeSink sink,
+            List<EmployeeData> allEmployees) throws Exception {
+
+        EmployeeBlockParser parser = new EmployeeBlockParser();
+        parser.setProgress(tracker);
+        parser.setListener(emp -> {
+            allEmployees.add(emp);
+            sink.accept(emp, parser.getMonthDays(), parser.getYear(), parser.getMonth());
+        });
+
+        if (DelimitedReader.accepts(inputFilePath)) {
+            DelimitedReader.read(inputFilePath, parser);
+        } else if (inputFilePath.toLowerCase().endsWith(".xls")) {
+            XlsEventReader.read(inputFilePath, parser);
+        } else {
+            XlsxStreamingReader.read(inputFilePath, parser);
+        }
+        parser.printPoolStats();
 
-        // If no empty columns, return identity mapping
-        if (emptyColumns.isEmpty()) {
-            Map<Integer, Integer> identityMap = new HashMap<>();
-            for (int i = 0; i < maxCol; i++) {
-                identityMap.put(i, i);
+        return new MergeResult(allEmployees, parser.getMonthDays(), parser.getYear(), parser.getMonth());
+    }
+
+    /**
+     * Parse each sheet on its own ForkJoinPool task and return the employees of
+     * every sheet, in sheet order.
+     */
+    private static List<List<EmployeeData>> parseSheetsParallel(List<Sheet> sheets, int year, int month,
+            int parallelism, ProgressTracker tracker) throws Exception {
+        // Only some sheets carry the "Days" header row; later sheets inherit the last one seen
+        boolean[][] dayColumns = new boolean[sheets.size()][];
+        boolean[] inherited = new boolean[0];
+        for (int i = 0; i < sheets.size(); i++) {
+            boolean[] own = findDayColumns(sheets.get(i));
+            if (own != null) {
+                inherited = own;
             }
-            return identityMap;
+            dayColumns[i] = inherited;
         }
 
-        // Create new column mapping
-        Map<Integer, Integer> columnMapping = new HashMap<>();
-        int newColIndex = 0;
-        for (int oldCol = 0; oldCol < maxCol; oldCol++) {
-            if (!emptyColumns.contains(oldCol)) {
-                columnMapping.put(oldCol, newColIndex);
-                newColIndex++;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<List<EmployeeData>>> tasks = new ArrayList<>();
+            for (int i = 0; i < sheets.size(); i++) {
+                Sheet sheet = sheets.get(i);
+                boolean[] seed = i > 0 ? dayColumns[i - 1] : new boolean[0];
+                tasks.add(pool.submit(() -> {
+                    List<EmployeeData> sheetEmployees = new ArrayList<>();
+                    EmployeeBlockParser parser = new EmployeeBlockParser();
+                    parser.setProgress(tracker);
+                    parser.presetMonth(year, month);
+                    parser.setDayColumns(seed);
+                    parser.setListener(sheetEmployees::add);
+                    parseSheet(sheet, parser);
+                    return sheetEmployees;
+                }));
             }
-        }
 
-        // Now physically remove the empty columns by shifting cells
-        List<Integer> sortedEmptyColumns = new ArrayList<>(emptyColumns);
-        Collections.sort(sortedEmptyColumns, Collections.reverseOrder()); // Process from right to left
-
-        for (int emptyCol : sortedEmptyColumns) {
-            // Shift all cells to the right of emptyCol to the left
-            for (Row row : sheet) {
-                if (row != null) {
-                    // Shift cells left
-                    for (int col = emptyCol; col < maxCol - 1; col++) {
-                        Cell sourceCell = row.getCell(col + 1, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-                        Cell targetCell = row.getCell(col, Row.MissingCellPolicy.CREATE_NULL_AS_BLANK);
-                        
-                        if (sourceCell != null) {
-                            copyCellValue(sourceCell, targetCell);
-                        } else {
-                            // Clear target if source is null
-                            targetCell.setBlank();
-                        }
-                    }
-                    // Remove the last cell (it's now duplicate)
-                    Cell lastCell = row.getCell(maxCol - 1);
-                    if (lastCell != null) {
-                        row.removeCell(lastCell);
+            List<List<EmployeeData>> results = new ArrayList<>();
+            for (ForkJoinTask<List<EmployeeData>> task : tasks) {
+                try {
+                    results.add(task.get());
+                } catch (ExecutionException ex) {
+                    // Surface the task's own failure (including cancellation) unwrapped
+                    if (ex.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) ex.getCause();
                     }
+                    throw ex;
                 }
             }
+            return results;
+        } finally {
+            pool.shutdownNow();
         }
-
-        System.out.println("Step 2 Complete: Removed " + emptyColumns.size() + " empty columns");
-        return columnMapping;
     }
 
-    /**
-     * Copy cell value from source to target
-     */
-    private static void copyCellValue(Cell source, Cell target) {
-        switch (source.getCellType()) {
-            case STRING:
-                target.setCellValue(source.getStringCellValue());
-                break;
-            case NUMERIC:
-                if (DateUtil.isCellDateFormatted(source)) {
-                    target.setCellValue(source.getDateCellValue());
-                } else {
-                    target.setCellValue(source.getNumericCellValue());
-                }
-                break;
-            case BOOLEAN:
-                target.setCellValue(source.getBooleanCellValue());
-                break;
-            case FORMULA:
-                target.setCellFormula(source.getCellFormula());
-                break;
-            case BLANK:
-                target.setBlank();
-                break;
-            default:
-                target.setCellValue(source.toString());
-        }
-        
-        // Copy style if available
-        if (source.getCellStyle() != null) {
-            target.setCellStyle(source.getCellStyle());
+    private static void parseSheet(Sheet sheet, EmployeeBlockParser parser) {
+        System.out.println("\n========================================");
+        System.out.println("Processing sheet: " + sheet.getSheetName());
+        System.out.println("========================================");
+
+        // The sheet is read as-is: merged regions and spacer columns are
+        // resolved by the parser through a logical -> physical column index
+        parser.startSheet();
+        for (Row row : sheet) {
+            if (row != null) {
+                parser.row(rowValues(row));
+            }
         }
+        parser.endSheet();
     }
 
     /**
-     * Check if text is summary text that should be ignored
+     * Day columns of the last "Days" header row in a sheet, or null if it has none.
      */
-    private static boolean isSummaryText(String value) {
-        if (value == null || value.isEmpty()) {
-            return false;
+    private static boolean[] findDayColumns(Sheet sheet) {
+        boolean[] found = null;
+        for (Row row : sheet) {
+            Cell first = row.getCell(0, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
+            if (first != null && first.getCellType() == CellType.STRING
+                    && first.getStringCellValue().trim().equalsIgnoreCase("Days")) {
+                found = EmployeeBlockParser.dayColumnsOf(rowValues(row));
+            }
         }
-        
-        String lower = value.toLowerCase();
-        return lower.contains("total work duration") ||
-               lower.contains("total ot") ||
-               lower.contains("present:") ||
-               lower.contains("absent:") ||
-               lower.contains("weeklyoff:") ||
-               lower.contains("holidays:") ||
-               lower.contains("leaves taken") ||
-               lower.contains("late by hrs") ||
-               lower.contains("early by hrs") ||
-               lower.contains("shift count") ||
-               lower.contains("average working") ||
-               lower.contains("hrs.");
+        return found;
     }
 
-    private static boolean isValidDataType(String label) {
-        String[] validTypes = { "Status", "InTime", "OutTime", "Duration", "Late By", "Early By", "OT", "Shift" };
-        for (String type : validTypes) {
-            if (type.equalsIgnoreCase(label)) {
-                return true;
-            }
+    /**
+     * Text of each physical cell of a row. Column 0 is only kept when it holds
+     * a string, since only text labels drive the block parser.
+     */
+    private static String[] rowValues(Row row) {
+        int lastCell = row.getLastCellNum();
+        String[] cells = new String[Math.max(lastCell, 0)];
+        for (Cell c : row) {
+            int col = c.getColumnIndex();
+            if (col == 0 && c.getCellType() != CellType.STRING)
+                continue;
+            cells[col] = c.toString();
         }
-        return false;
+        return cells;
     }
 
-    private static boolean hasEssentialData(EmployeeData emp) {
+    static boolean hasEssentialData(EmployeeData emp) {
         boolean hasRequired = emp.dailyData.containsKey("Status") && 
                              emp.dailyData.containsKey("InTime") &&
                              emp.dailyData.containsKey("OutTime") && 
@@ -464,8 +567,123 @@ public class AttendanceMerger {
         return hasRequired;
     }
 
-    private static int writeEmployee(EmployeeData emp, Sheet outSheet, CellStyle borderStyle, CellStyle weekendStyle,
-            CellStyle holidayStyle, int startRow, int days, List<Integer> holidays, int year, int month) {
+    // Data rows of an employee block in the Master sheet
+    private static final String[] MASTER_ROWS = { "Status", "InTime", "OutTime", "Duration", "Late By", "Early By",
+            "OT", "Shift" };
+    // XlsxWriter styles by MonthCalendar style slot
+    private static final int[] DIRECT_DAY_STYLES = { XlsxWriter.STYLE_BORDER, XlsxWriter.STYLE_WEEKEND,
+            XlsxWriter.STYLE_HOLIDAY };
+
+    /**
+     * Writes the Master sheet to a file, one employee block at a time: through
+     * POI (see {@link #newMasterWorkbook}), or with {@link XlsxWriter} when
+     * {@link MergeOptions#directOutput} is set. Nothing is in place at the
+     * output path until {@link #finish}.
+     */
+    static class MasterWriter implements Closeable {
+        private final String outputPath;
+        // POI path
+        private final Workbook outWb;
+        private final Sheet sheet;
+        private final CellStyle borderStyle;
+        // Indexed by MonthCalendar style slot
+        private final CellStyle[] dayStyles;
+        // Direct path: the sheet is streamed to a temp file, moved into place by finish
+        private final XlsxWriter direct;
+        private final File directTmp;
+        // Holidays are fixed for a run; the month is known once the first block is parsed
+        private MonthCalendar calendar;
+        private int rowNum = 0;
+
+        MasterWriter(String outputPath, MergeOptions options) throws IOException {
+            this.outputPath = outputPath;
+            if (options.directOutput) {
+                File target = new File(outputPath).getAbsoluteFile();
+                directTmp = new File(target.getParentFile(), target.getName() + ".tmp");
+                direct = new XlsxWriter(new BufferedOutputStream(new FileOutputStream(directTmp), 1 << 16));
+                direct.startSheet("Master");
+                outWb = null;
+                sheet = null;
+                borderStyle = null;
+                dayStyles = null;
+                return;
+            }
+            direct = null;
+            directTmp = null;
+            outWb = newMasterWorkbook(options);
+            sheet = outWb.createSheet("Master");
+
+            borderStyle = outWb.createCellStyle();
+            borderStyle.setBorderTop(BorderStyle.THIN);
+            borderStyle.setBorderBottom(BorderStyle.THIN);
+            borderStyle.setBorderLeft(BorderStyle.THIN);
+            borderStyle.setBorderRight(BorderStyle.THIN);
+
+            CellStyle weekendStyle = outWb.createCellStyle();
+            weekendStyle.cloneStyleFrom(borderStyle);
+            weekendStyle.setFillForegroundColor(IndexedColors.LIGHT_YELLOW.getIndex());
+            weekendStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+
+            CellStyle holidayStyle = outWb.createCellStyle();
+            holidayStyle.cloneStyleFrom(borderStyle);
+            holidayStyle.setFillForegroundColor(IndexedColors.LIGHT_ORANGE.getIndex());
+            holidayStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+
+            dayStyles = new CellStyle[3];
+            dayStyles[MonthCalendar.STYLE_PLAIN] = borderStyle;
+            dayStyles[MonthCalendar.STYLE_WEEKEND] = weekendStyle;
+            dayStyles[MonthCalendar.STYLE_HOLIDAY] = holidayStyle;
+        }
+
+        /** Appends an employee block to the Master sheet, three blank rows after the previous one. */
+        void write(EmployeeData emp, int days, List<Integer> holidays, int year, int month) {
+            if (calendar == null || calendar.year != year || calendar.month != month) {
+                calendar = MonthCalendar.of(year, month, holidays);
+            }
+            if (direct == null) {
+                rowNum = writeEmployee(emp, sheet, borderStyle, dayStyles, rowNum, days, calendar) + 3;
+                return;
+            }
+            try {
+                rowNum = writeEmployee(emp, direct, rowNum, days, calendar) + 3;
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Could not write the Master sheet to " + directTmp, ex);
+            }
+        }
+
+        /** Put the written sheet at the output path. */
+        void finish() throws IOException {
+            if (direct == null) {
+                try (FileOutputStream fos = new FileOutputStream(outputPath)) {
+                    outWb.write(fos);
+                }
+                return;
+            }
+            direct.close();
+            Files.move(directTmp.toPath(), Paths.get(outputPath), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        /** Release the workbook or temp file; an unfinished output is dropped. */
+        @Override
+        public void close() throws IOException {
+            if (direct == null) {
+                // Also deletes the temp files of an SXSSF workbook
+                outWb.close();
+                return;
+            }
+            if (directTmp.exists()) {
+                try {
+                    direct.close();
+                } catch (IOException ex) {
+                    // Already failed; the partial file goes either way
+                }
+                directTmp.delete();
+            }
+        }
+    }
+
+    private static int writeEmployee(EmployeeData emp, Sheet outSheet, CellStyle borderStyle, CellStyle[] dayStyles,
+            int startRow, int days, MonthCalendar calendar) {
 
         int rowNum = startRow;
 
@@ -479,29 +697,11 @@ public class AttendanceMerger {
         createCell(dayHeaderRow, 0, "Day", borderStyle);
 
         for (int dayNum = 1; dayNum <= days; dayNum++) {
-            LocalDate currentDate = LocalDate.of(year, month, dayNum);
-            String dayName = currentDate.getDayOfWeek().getDisplayName(TextStyle.SHORT, Locale.ENGLISH);
-            String dayLabel = dayNum + " " + dayName;
-            CellStyle headerStyle = borderStyle;
-
-            boolean isWeekend = isWeekend(year, month, dayNum);
-            boolean isHoliday = holidays != null && holidays.contains(dayNum) && !isWeekend;
-
-            if (isWeekend) {
-                dayLabel += " (WE)";
-                headerStyle = weekendStyle;
-            } else if (isHoliday) {
-                dayLabel += " (H)";
-                headerStyle = holidayStyle;
-            }
-
-            createStyledCell(dayHeaderRow, dayNum, dayLabel, headerStyle);
+            createStyledCell(dayHeaderRow, dayNum, calendar.label(dayNum), dayStyles[calendar.styleIndex(dayNum)]);
         }
 
         // Write data rows
-        String[] dataTypes = { "Status", "InTime", "OutTime", "Duration", "Late By", "Early By", "OT", "Shift" };
-
-        for (String dataType : dataTypes) {
+        for (String dataType : MASTER_ROWS) {
             List<String> data = emp.dailyData.get(dataType);
             if (data == null) {
                 data = new ArrayList<>();
@@ -518,35 +718,46 @@ public class AttendanceMerger {
                 String originalValue = dataIndex < data.size() ? data.get(dataIndex) : "";
                 if (originalValue == null) originalValue = "";
 
-                CellStyle cellStyle = borderStyle;
-
-                boolean isWeekend = isWeekend(year, month, dayNum);
-                boolean isHoliday = holidays != null && holidays.contains(dayNum) && !isWeekend;
-
-                if (isWeekend) {
-                    cellStyle = weekendStyle;
-                } else if (isHoliday) {
-                    cellStyle = holidayStyle;
-                }
-
-                createStyledCell(dataRow, dayNum, originalValue, cellStyle);
+                createStyledCell(dataRow, dayNum, originalValue, dayStyles[calendar.styleIndex(dayNum)]);
             }
         }
 
         return rowNum - 1;
     }
 
-    private static boolean isWeekend(int year, int month, int day) {
-        try {
-            if (day < 1 || day > YearMonth.of(year, month).lengthOfMonth()) {
-                return false;
+    // The writeEmployee layout, streamed through XlsxWriter
+    private static int writeEmployee(EmployeeData emp, XlsxWriter out, int startRow, int days,
+            MonthCalendar calendar) throws IOException {
+
+        int rowNum = startRow;
+
+        out.row(rowNum++);
+        out.text("Employee:", XlsxWriter.STYLE_BORDER);
+        out.text(emp.empId + " : " + emp.empName, XlsxWriter.STYLE_BORDER);
+
+        int[] styles = new int[days + 1];
+        for (int dayNum = 1; dayNum <= days; dayNum++) {
+            styles[dayNum] = DIRECT_DAY_STYLES[calendar.styleIndex(dayNum)];
+        }
+
+        out.row(rowNum++);
+        out.text("Day", XlsxWriter.STYLE_BORDER);
+        for (int dayNum = 1; dayNum <= days; dayNum++) {
+            out.text(calendar.label(dayNum), styles[dayNum]);
+        }
+
+        for (String dataType : MASTER_ROWS) {
+            List<String> data = emp.dailyData.get(dataType);
+
+            out.row(rowNum++);
+            out.text(dataType, XlsxWriter.STYLE_BORDER);
+            for (int dayNum = 1; dayNum <= days; dayNum++) {
+                int dataIndex = dayNum - 1;
+                out.text(data != null && dataIndex < data.size() ? data.get(dataIndex) : "", styles[dayNum]);
             }
-            LocalDate date = LocalDate.of(year, month, day);
-            DayOfWeek dayOfWeek = date.getDayOfWeek();
-            return dayOfWeek == DayOfWeek.SATURDAY || dayOfWeek == DayOfWeek.SUNDAY;
-        } catch (Exception e) {
-            return false;
         }
+
+        return rowNum - 1;
     }
 
     private static void createCell(Row r, int col, String val, CellStyle style) {
@@ -560,28 +771,4 @@ public class AttendanceMerger {
         c.setCellValue(val);
         c.setCellStyle(style);
     }
-
-    private static int monthNameToNumber(String name) {
-        try {
-            String shortName = name.substring(0, 3).toUpperCase();
-            switch (shortName) {
-            case "JAN": return 1;
-            case "FEB": return 2;
-            case "MAR": return 3;
-            case "APR": return 4;
-            case "MAY": return 5;
-            case "JUN": return 6;
-            case "JUL": return 7;
-            case "AUG": return 8;
-            case "SEP": return 9;
-            case "OCT": return 10;
-            case "NOV": return 11;
-            case "DEC": return 12;
-            default: return 1;
-            }
-        } catch (Exception e) {
-            return 1;
-        }
-    }
-    
-}
\ No newline at end of file
+}
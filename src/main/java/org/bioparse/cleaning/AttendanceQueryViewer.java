@@ -18,14 +18,15 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.List;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class AttendanceQueryViewer {
 
-    private Workbook wb;
-    private Sheet masterSheet;
     private List<AttendanceMerger.EmployeeData> employees;
+    // Answers employee lookups from its id index
+    private AttendanceMerger.MergeResult result;
+    // Past months for the history view, or null
+    private AttendanceArchive archive;
     private JTable currentTable;
     private String currentTitle;
     private TableRowSorter<DefaultTableModel> sorter;
@@ -39,27 +40,32 @@ public class AttendanceQueryViewer {
     private int currentMonth;
 
     // PRIMARY CONSTRUCTOR: requires year and month
-    public AttendanceQueryViewer(String mergedFile, List<AttendanceMerger.EmployeeData> employees, int year, int month) throws Exception {
-        FileInputStream fis = new FileInputStream(mergedFile);
-        wb = new XSSFWorkbook(fis);
-        masterSheet = wb.getSheet("Master");
-        this.employees = employees;
+    public AttendanceQueryViewer(String mergedFile, AttendanceMerger.MergeResult result, int year, int month) throws Exception {
+        // Queries run on the parsed employees; the merged file only has to exist
+        if (!new File(mergedFile).isFile()) {
+            throw new FileNotFoundException("Merged file not found: " + mergedFile);
+        }
+        this.result = result;
+        this.employees = result.allEmployees;
         this.currentYear = year;
         this.currentMonth = month;
     }
 
+    public AttendanceQueryViewer(String mergedFile, List<AttendanceMerger.EmployeeData> employees, int year, int month) throws Exception {
+        this(mergedFile, new AttendanceMerger.MergeResult(employees, 0, year, month), year, month);
+    }
+
     // IMPROVED OVERLOAD: attempts to detect month/year from workbook; falls back to system month/year
     public AttendanceQueryViewer(String mergedFile, List<AttendanceMerger.EmployeeData> employees) throws Exception {
-        FileInputStream fis = new FileInputStream(mergedFile);
-        wb = new XSSFWorkbook(fis);
-        masterSheet = wb.getSheet("Master");
         this.employees = employees;
+        this.result = new AttendanceMerger.MergeResult(employees, 0, 0, 0);
 
         // Try detect month/year from workbook; fallback to current month/year
         int detectedYear = -1;
         int detectedMonth = -1;
-        try {
-            int[] y_m = detectMonthYearFromWorkbook(masterSheet);
+        try (WorkbookAccess access = WorkbookAccess.open(mergedFile)) {
+            // Only the top of the Master sheet is read; date cells come back as "MMMM yyyy"
+            int[] y_m = detectMonthYearFromWorkbook("Master", access.rows("Master", 40, new MonthDateFormatter()));
             detectedYear = y_m[0];
             detectedMonth = y_m[1];
         } catch (Exception ex) {
@@ -79,10 +85,7 @@ public class AttendanceQueryViewer {
     }
 
     public void showByEmployee(String empCode) {
-        AttendanceMerger.EmployeeData emp = employees.stream()
-                .filter(e -> e.empId.equalsIgnoreCase(empCode))
-                .findFirst()
-                .orElse(null);
+        AttendanceMerger.EmployeeData emp = result.findById(empCode);
 
         if (emp == null) {
             JOptionPane.showMessageDialog(null, "Employee not found: " + empCode);
@@ -92,6 +95,49 @@ public class AttendanceQueryViewer {
         showEmployeeTable(emp);
     }
 
+    /** Use the months of an archive for {@link #showEmployeeHistory}. */
+    public void setArchive(AttendanceArchive archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * One row per archived month with the employee's day counts, read from the
+     * mapped month files rather than from the merged workbooks.
+     */
+    public void showEmployeeHistory(String empCode) {
+        List<AttendanceArchive.Month> months = archive != null ? archive.months() : Collections.emptyList();
+        if (months.isEmpty()) {
+            JOptionPane.showMessageDialog(null, "No archived months to search.");
+            return;
+        }
+
+        String[] columns = {"Month", "Employee Name", "Present", "Half Day", "Absent", "Weekly Off", "Holiday",
+                "Worked Off Day"};
+        DefaultTableModel model = createTableModel(columns);
+        String id = empCode.trim();
+        for (AttendanceArchive.Month month : months) {
+            int emp = month.indexOf(id);
+            if (emp < 0)
+                continue;
+            int[] counts = new int[AttendanceStore.Status.values().length];
+            for (int d = 0; d < month.monthDays(); d++) {
+                counts[month.status(emp, d).ordinal()]++;
+            }
+            String name = new DateFormatSymbols().getMonths()[month.month() - 1] + " " + month.year();
+            model.addRow(new Object[]{name, displayValue(month.empName(emp)),
+                    counts[AttendanceStore.Status.P.ordinal()], counts[AttendanceStore.Status.HALF_P.ordinal()],
+                    counts[AttendanceStore.Status.A.ordinal()], counts[AttendanceStore.Status.WO.ordinal()],
+                    counts[AttendanceStore.Status.H.ordinal()],
+                    counts[AttendanceStore.Status.WOP.ordinal()] + counts[AttendanceStore.Status.HP.ordinal()]});
+        }
+
+        if (model.getRowCount() == 0) {
+            JOptionPane.showMessageDialog(null, "Employee not found in archived months: " + empCode);
+            return;
+        }
+        showTable("Archived attendance - " + id, model, columns);
+    }
+
     public void showByDate(int day) {
         // Use the stored year/month from processed data
         showByDate(day, currentYear, currentMonth);
@@ -106,13 +152,9 @@ public class AttendanceQueryViewer {
         LocalDate date = LocalDate.of(year, month, day);
         String formattedDate = date.format(DateTimeFormatter.ofPattern("EEE, MMM d"));
 
-        for (AttendanceMerger.EmployeeData emp : employees) {
-            String in = displayValue(AttendanceUtils.safeGet(emp.dailyData.get("InTime"), day - 1));
-            String out = displayValue(AttendanceUtils.safeGet(emp.dailyData.get("OutTime"), day - 1));
-            String dur = calculateDuration(in, out);
-            String stat = displayValue(AttendanceUtils.safeGet(emp.dailyData.get("Status"), day - 1));
-
-            model.addRow(new Object[]{emp.empId, emp.empName, in, out, dur, stat});
+        DayIndex days = result.days();
+        for (int e = 0; e < days.employees(); e++) {
+            model.addRow(dayRow(days, day - 1, e, null));
         }
 
         showTable("Attendance for " + formattedDate, model, columns);
@@ -124,16 +166,15 @@ public class AttendanceQueryViewer {
         String[] columns = {"Employee Code", "Employee Name", "Day", "InTime", "OutTime", "Duration", "Status"};
         DefaultTableModel model = createTableModel(columns);
 
-        for (AttendanceMerger.EmployeeData emp : employees) {
+        DayIndex days = result.days();
+        String[] formattedDates = new String[endDay - startDay + 1];
+        for (int d = startDay; d <= endDay; d++) {
+            formattedDates[d - startDay] = LocalDate.of(year, month, d).format(DateTimeFormatter.ofPattern("EEE, MMM d"));
+        }
+        // Rows stay grouped by employee; each one reads its days from the day-major index
+        for (int e = 0; e < days.employees(); e++) {
             for (int d = startDay; d <= endDay; d++) {
-                LocalDate date = LocalDate.of(year, month, d);
-                String formattedDate = date.format(DateTimeFormatter.ofPattern("EEE, MMM d"));
-                String in = displayValue(AttendanceUtils.safeGet(emp.dailyData.get("InTime"), d - 1));
-                String out = displayValue(AttendanceUtils.safeGet(emp.dailyData.get("OutTime"), d - 1));
-                String dur = calculateDuration(in, out);
-                String stat = displayValue(AttendanceUtils.safeGet(emp.dailyData.get("Status"), d - 1));
-
-                model.addRow(new Object[]{emp.empId, emp.empName, formattedDate, in, out, dur, stat});
+                model.addRow(dayRow(days, d - 1, e, formattedDates[d - startDay]));
             }
         }
 
@@ -175,6 +216,34 @@ public class AttendanceQueryViewer {
         showTable("Attendance for " + monthName + " " + currentYear + " - " + emp.empId + " : " + emp.empName, model, columns);
     }
 
+    // Table row of one employee-day; formattedDate is null for single-day tables
+    private Object[] dayRow(DayIndex days, int day, int emp, String formattedDate) {
+        String in = displayValue(days.text(AttendanceStore.IN_TIME, day, emp));
+        String out = displayValue(days.text(AttendanceStore.OUT_TIME, day, emp));
+        String dur = calculateDuration(days.time(AttendanceStore.IN_TIME, day, emp),
+                days.time(AttendanceStore.OUT_TIME, day, emp), in, out);
+        String stat = displayValue(days.text(AttendanceStore.STATUS, day, emp));
+        return formattedDate == null
+                ? new Object[]{days.empId(emp), days.empName(emp), in, out, dur, stat}
+                : new Object[]{days.empId(emp), days.empName(emp), formattedDate, in, out, dur, stat};
+    }
+
+    // Same result as the text version, without parsing times that are already minutes
+    private String calculateDuration(short inTime, short outTime, String inText, String outText) {
+        if (inTime == AttendanceStore.EMPTY || outTime == AttendanceStore.EMPTY) {
+            return "-";
+        }
+        if (inTime < 0 || outTime < 0 || AttendanceStore.minutes(inTime) >= 24 * 60
+                || AttendanceStore.minutes(outTime) >= 24 * 60) {
+            return calculateDuration(inText, outText);
+        }
+        int minutes = AttendanceStore.minutes(outTime) - AttendanceStore.minutes(inTime);
+        if (minutes < 0) {
+            minutes += 24 * 60; // Handle next-day outTime
+        }
+        return String.format("%d:%02d", minutes / 60, minutes % 60);
+    }
+
     private String calculateDuration(String inTime, String outTime) {
         if (inTime == null || inTime.isEmpty() || outTime == null || outTime.isEmpty()) {
             return "-";
@@ -525,83 +594,46 @@ public class AttendanceQueryViewer {
     }
 
     // --- Workbook detection helpers ---
-    private int[] detectMonthYearFromWorkbook(Sheet sheet) {
-        if (sheet == null) throw new IllegalArgumentException("sheet is null");
-
-     // Regex to capture month name (short or long) and year
-        String monthNames = "Jan(?:uary)?|Feb(?:ruary)?|Mar(?:ch)?|Apr(?:il)?|May|Jun(?:e)?|Jul(?:y)?|Aug(?:ust)?|Sep(?:tember)?|Oct(?:ober)?|Nov(?:ember)?|Dec(?:ember)?";
-        Pattern p = Pattern.compile("(?i)\\b(" + monthNames + ")\\b[\\s\\-\\/,]*?(\\d{4})");
+    private int[] detectMonthYearFromWorkbook(String sheetName, List<String[]> rows) {
+        if (rows == null) throw new IllegalArgumentException(sheetName + " sheet not found");
 
         // search a small area of sheet
-        int maxRows = Math.min(40, sheet.getLastRowNum() + 1);
-        for (int r = 0; r < maxRows; r++) {
-            Row row = sheet.getRow(r);
-            if (row == null) continue;
-            int maxCols = Math.min(10, row.getLastCellNum() == -1 ? 10 : row.getLastCellNum());
+        for (String[] row : rows) {
+            int maxCols = Math.min(10, row.length);
             for (int c = 0; c < maxCols; c++) {
-                Cell cell = row.getCell(c);
-                if (cell == null) continue;
-                String text = getCellAsString(cell);
-                if (text == null || text.trim().isEmpty()) continue;
-                Matcher m = p.matcher(text);
-                if (m.find()) {
-                    String monthText = m.group(1);
-                    String yearText = m.group(2);
-                    int month = parseMonthNameToNumber(monthText);
-                    int year = Integer.parseInt(yearText);
-                    if (month >= 1 && year > 0) return new int[]{year, month};
-                }
+                if (row[c] == null) continue;
+                int[] ym = TextClassifier.findMonthYear(row[c]);
+                if (ym != null && ym[1] >= 1 && ym[0] > 0) return ym;
             }
         }
 
         // also check sheet name
-        String sheetName = sheet.getSheetName();
-        if (sheetName != null) {
-            Matcher m2 = p.matcher(sheetName);
-            if (m2.find()) {
-                int month = parseMonthNameToNumber(m2.group(1));
-                int year = Integer.parseInt(m2.group(2));
-                return new int[]{year, month};
-            }
-        }
+        int[] ym = TextClassifier.findMonthYear(sheetName);
+        if (ym != null && ym[1] >= 1 && ym[0] > 0) return ym;
 
         throw new RuntimeException("Processed month/year not found in sheet.");
     }
 
-    private String getCellAsString(Cell cell) {
-        try {
-            if (cell.getCellType() == CellType.STRING) return cell.getStringCellValue();
-            if (cell.getCellType() == CellType.NUMERIC) {
-                if (DateUtil.isCellDateFormatted(cell)) {
-                    Date dt = cell.getDateCellValue();
-                    return new java.text.SimpleDateFormat("MMMM yyyy").format(dt);
-                } else {
-                    return Double.toString(cell.getNumericCellValue());
-                }
+    // Shows date-formatted cells as "MMMM yyyy", so a header date reads as its month
+    private static class MonthDateFormatter extends DataFormatter {
+        @Override
+        public String formatCellValue(Cell cell) {
+            if (cell != null && cell.getCellType() == CellType.NUMERIC && DateUtil.isCellDateFormatted(cell)) {
+                return monthOf(cell.getNumericCellValue());
             }
-            return cell.toString();
-        } catch (Exception e) {
-            return null;
+            return super.formatCellValue(cell);
+        }
+
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString) {
+            if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+                return monthOf(value);
+            }
+            return super.formatRawCellContents(value, formatIndex, formatString);
         }
-    }
 
-    private int parseMonthNameToNumber(String mname) {
-        if (mname == null) return -1;
-        mname = mname.toLowerCase();
-        switch (mname) {
-            case "jan": case "january": return 1;
-            case "feb": case "february": return 2;
-            case "mar": case "march": return 3;
-            case "apr": case "april": return 4;
-            case "may": return 5;
-            case "jun": case "june": return 6;
-            case "jul": case "july": return 7;
-            case "aug": case "august": return 8;
-            case "sep": case "september": return 9;
-            case "oct": case "october": return 10;
-            case "nov": case "november": return 11;
-            case "dec": case "december": return 12;
-            default: return -1;
+        private static String monthOf(double value) {
+            return new java.text.SimpleDateFormat("MMMM yyyy", Locale.ENGLISH).format(DateUtil.getJavaDate(value));
         }
     }
-}
\ No newline at end of file
+}
@@ -1,10 +1,10 @@
 package org.bioparse.cleaning;
 
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.bioparse.cleaning.AttendanceMerger.EmployeeData;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.time.*;
 import java.util.*;
 
@@ -47,100 +47,145 @@ public class AttendanceReportGenerator {
 
     // ======================= REPORT GENERATION =======================
 
+    private static final String[] REPORT_COLUMNS = {
+            "Employee Code",
+            "Total Working Days",
+            "Total Full Days",
+            "Half Days Due To Duration",
+            "Half Days Due To Punch Miss",
+            "Half Days Due To Lates",
+            "Total Half Days",
+            "Total Lates",
+            "Total Absent",
+            "Total Punch Missed",
+            "Weekend/Holiday Present Days",
+            "Working Day OT Hours",
+            "Weekend/Holiday Full OT Hours",
+            "Weekend/Holiday Half OT Hours",
+            "Total OT Hours",
+            "Remarks"
+    };
+
+    // Excel's column width limit, in characters
+    private static final int MAX_COLUMN_WIDTH = 255;
+
+    /**
+     * Write outputFile as the merged workbook inputFile plus an
+     * "Employee_Report" sheet computed from allEmployees. The merged sheets
+     * are copied part by part and never loaded (see
+     * {@link XlsxWriter#appending}); inputFile may be outputFile.
+     */
     public void generate(String inputFile, String outputFile,
                          List<AttendanceMerger.EmployeeData> allEmployees,
                          int monthDays, List<Integer> holidays,
                          int year, int month) throws Exception {
+        writeReport(new File(inputFile), outputFile, allEmployees, monthDays, holidays, year, month);
+    }
 
-        Workbook wb = new XSSFWorkbook(new FileInputStream(inputFile));
-        Sheet sheet = wb.createSheet("Employee_Report");
-
-        String[] cols = {
-                "Employee Code",
-                "Total Working Days",
-                "Total Full Days",
-                "Half Days Due To Duration",
-                "Half Days Due To Punch Miss",
-                "Half Days Due To Lates",
-                "Total Half Days",
-                "Total Lates",
-                "Total Absent",
-                "Total Punch Missed",
-                "Weekend/Holiday Present Days",
-                "Working Day OT Hours",
-                "Weekend/Holiday Full OT Hours",
-                "Weekend/Holiday Half OT Hours",
-                "Total OT Hours",
-                "Remarks"
-        };
+    /** Write the "Employee_Report" sheet of allEmployees as a workbook of its own. */
+    public void writeReport(String outputFile,
+                            List<AttendanceMerger.EmployeeData> allEmployees,
+                            int monthDays, List<Integer> holidays,
+                            int year, int month) throws IOException {
+        writeReport(null, outputFile, allEmployees, monthDays, holidays, year, month);
+    }
 
-        Row header = sheet.createRow(0);
-        for (int i = 0; i < cols.length; i++) {
-            header.createCell(i).setCellValue(cols[i]);
+    private void writeReport(File base, String outputFile, List<AttendanceMerger.EmployeeData> allEmployees,
+                             int monthDays, List<Integer> holidays, int year, int month) throws IOException {
+        MonthCalendar calendar = MonthCalendar.of(year, month, holidays);
+        List<Object[]> rows = new ArrayList<>(allEmployees.size());
+        double[] widths = new double[REPORT_COLUMNS.length];
+        for (int i = 0; i < REPORT_COLUMNS.length; i++) {
+            widths[i] = REPORT_COLUMNS[i].length();
         }
-
-        int rowNum = 1;
         for (AttendanceMerger.EmployeeData emp : allEmployees) {
-            Metrics m = computeMetrics(emp, monthDays, holidays, year, month);
-
-            Row r = sheet.createRow(rowNum++);
-            int c = 0;
-
-            r.createCell(c++).setCellValue(emp.empId);
-            r.createCell(c++).setCellValue(m.totalWorkingDays);
-            r.createCell(c++).setCellValue(m.totalFullDays);
-            r.createCell(c++).setCellValue(m.halfDaysDueToDuration);
-            r.createCell(c++).setCellValue(m.halfDaysDueToPunchMiss);
-            r.createCell(c++).setCellValue(m.halfDaysDueToLate);
-            r.createCell(c++).setCellValue(m.halfDays);
-            r.createCell(c++).setCellValue(m.totalLates);
-            r.createCell(c++).setCellValue(m.totalAbsent);
-            r.createCell(c++).setCellValue(m.totalPunchMissed);
-            r.createCell(c++).setCellValue(m.weekendHolidayPresentDays);
-
-            // Working-day OT (rounded)
-            int blocks = (m.workingDayOTMinutes + 29) / 30;
-            double workingOTHours = blocks * 0.5;
-
-            double weekendFullOTHours = m.weekendFullOTMinutes / 60.0;
-            double weekendHalfOTHours = m.weekendHalfOTMinutes / 60.0;
-
-            double totalOTHours = workingOTHours + weekendFullOTHours + weekendHalfOTHours;
-
-            r.createCell(c++).setCellValue(round2(workingOTHours));
-            r.createCell(c++).setCellValue(round2(weekendFullOTHours));
-            r.createCell(c++).setCellValue(round2(weekendHalfOTHours));
-            r.createCell(c++).setCellValue(round2(totalOTHours));
-            r.createCell(c++).setCellValue(String.join("; ", m.remarks));
+            Object[] row = reportRow(emp, computeMetrics(emp, monthDays, calendar));
+            for (int i = 0; i < row.length; i++) {
+                widths[i] = Math.max(widths[i], String.valueOf(row[i]).length());
+            }
+            rows.add(row);
+        }
+        // Sized to the longest value, in place of autoSizeColumn
+        for (int i = 0; i < widths.length; i++) {
+            widths[i] = Math.min(widths[i] + 2, MAX_COLUMN_WIDTH);
         }
 
-        for (int i = 0; i < cols.length; i++) sheet.autoSizeColumn(i);
+        // Built next to the output and moved into place once complete
+        File target = new File(outputFile).getAbsoluteFile();
+        File tmp = new File(target.getParentFile(), target.getName() + ".tmp");
+        try {
+            OutputStream fos = new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16);
+            try (XlsxWriter out = base != null ? XlsxWriter.appending(base, fos) : new XlsxWriter(fos)) {
+                out.startSheet("Employee_Report", widths);
+                out.row(0);
+                for (String col : REPORT_COLUMNS) {
+                    out.text(col, XlsxWriter.STYLE_DEFAULT);
+                }
+                int rowNum = 1;
+                for (Object[] row : rows) {
+                    out.row(rowNum++);
+                    for (Object value : row) {
+                        if (value instanceof Number) {
+                            out.number(((Number) value).doubleValue(), XlsxWriter.STYLE_DEFAULT);
+                        } else {
+                            out.text((String) value, XlsxWriter.STYLE_DEFAULT);
+                        }
+                    }
+                }
+            }
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            tmp.delete();
+        }
+        System.out.println("✓ Employee report written to: " + outputFile);
+    }
 
-        FileOutputStream fos = new FileOutputStream(outputFile);
-        wb.write(fos);
-        fos.close();
-        wb.close();
+    // Cells of an Employee_Report row, in REPORT_COLUMNS order
+    private Object[] reportRow(AttendanceMerger.EmployeeData emp, Metrics m) {
+        // Working-day OT (rounded)
+        int blocks = (m.workingDayOTMinutes + 29) / 30;
+        double workingOTHours = blocks * 0.5;
+
+        double weekendFullOTHours = m.weekendFullOTMinutes / 60.0;
+        double weekendHalfOTHours = m.weekendHalfOTMinutes / 60.0;
+
+        double totalOTHours = workingOTHours + weekendFullOTHours + weekendHalfOTHours;
+
+        return new Object[] {
+                emp.empId,
+                m.totalWorkingDays,
+                m.totalFullDays,
+                m.halfDaysDueToDuration,
+                m.halfDaysDueToPunchMiss,
+                m.halfDaysDueToLate,
+                m.halfDays,
+                m.totalLates,
+                m.totalAbsent,
+                m.totalPunchMissed,
+                m.weekendHolidayPresentDays,
+                round2(workingOTHours),
+                round2(weekendFullOTHours),
+                round2(weekendHalfOTHours),
+                round2(totalOTHours),
+                String.join("; ", m.remarks)
+        };
     }
 
     // ======================= CORE LOGIC =======================
 
     public Metrics computeMetrics(AttendanceMerger.EmployeeData emp, int monthDays,
                                    List<Integer> holidays, int year, int month) {
+        return computeMetrics(emp, monthDays, MonthCalendar.of(year, month, holidays));
+    }
 
-        Metrics m = new Metrics();
-
-        int weekendDays = 0;
-        for (int d = 1; d <= monthDays; d++) if (isWeekend(year, month, d)) weekendDays++;
+    public Metrics computeMetrics(AttendanceMerger.EmployeeData emp, int monthDays, MonthCalendar calendar) {
 
-        int holidayWD = 0;
-        if (holidays != null)
-            for (Integer h : holidays)
-                if (!isWeekend(year, month, h)) holidayWD++;
+        Metrics m = new Metrics();
 
-        m.totalWorkingDays = monthDays - weekendDays - holidayWD;
+        m.totalWorkingDays = calendar.workingDays(monthDays);
 
-        List<String> inTimes = emp.dailyData.getOrDefault("InTime", new ArrayList<>());
-        List<String> outTimes = emp.dailyData.getOrDefault("OutTime", new ArrayList<>());
+        DayTimes inTimes = DayTimes.of(emp, AttendanceStore.IN_TIME, monthDays);
+        DayTimes outTimes = DayTimes.of(emp, AttendanceStore.OUT_TIME, monthDays);
         List<String> statusList = emp.dailyData.getOrDefault("Status", new ArrayList<>());
 
         String[] status = new String[monthDays];
@@ -159,20 +204,19 @@ public class AttendanceReportGenerator {
         }
 
         int latesSeen = 0;
-        LocalTime shiftStartTime = LocalTime.parse(shiftStart);
+        long shiftStartTime = LocalTime.parse(shiftStart).toNanoOfDay();
+        long onTimeEndTime = LocalTime.parse(onTimeEnd).toNanoOfDay();
+        long halfDayTime = LocalTime.parse(halfDayThreshold).toNanoOfDay();
 
         for (int d = 0; d < monthDays; d++) {
             int dayNum = d + 1;
-            boolean isHolidayOrWeekend = isWeekend(year, month, dayNum)
-                    || (holidays != null && holidays.contains(dayNum));
+            boolean isHolidayOrWeekend = !calendar.isWorkingDay(dayNum);
 
-            String in = AttendanceUtils.safeGet(inTimes, d);
-            String out = AttendanceUtils.safeGet(outTimes, d);
-            boolean inP = in != null && !in.isEmpty();
-            boolean outP = out != null && !out.isEmpty();
+            boolean inP = inTimes.present(d);
+            boolean outP = outTimes.present(d);
             boolean punchMiss = inP ^ outP;
 
-            int minutes = calculateDuration(in, out);
+            int minutes = calculateDuration(inTimes, outTimes, d);
 
             if ("A".equals(status[d]) && !inP && !outP) m.totalAbsent++;
 
@@ -188,14 +232,14 @@ public class AttendanceReportGenerator {
                     continue;
                 }
 
-                if (isAfterHalfDayThreshold(in)) {
+                if (inP && inTimes.at(d) > halfDayTime) {
                     m.halfDays++;
                     m.halfDaysDueToLate++;
                     m.remarks.add(dayNum + "th: Half day due to late arrival (>10:15)");
                     continue;
                 }
 
-                if (isLate(in)) {
+                if (inP && inTimes.at(d) > onTimeEndTime && inTimes.at(d) <= halfDayTime) {
                     latesSeen++;
                     m.totalLates++;
                     if (latesSeen > allowedLatesPerMonth) {
@@ -216,11 +260,7 @@ public class AttendanceReportGenerator {
 
                 // Working day OT
                 if (inP && outP) {
-                    LocalTime inT = LocalTime.parse(in);
-                    LocalTime outT = LocalTime.parse(out);
-                    long worked = Duration.between(
-                            inT.isBefore(shiftStartTime) ? shiftStartTime : inT,
-                            outT).toMinutes();
+                    long worked = minutesBetween(Math.max(inTimes.at(d), shiftStartTime), outTimes.at(d));
                     if (worked >= fullDayMinutes + otThresholdMinutes) {
                         m.workingDayOTMinutes += (worked - fullDayMinutes);
                     }
@@ -240,7 +280,7 @@ public class AttendanceReportGenerator {
                     m.weekendHalfOTMinutes += 240;
                     m.remarks.add(dayNum + "th: Half OT day due to punch miss");
                 } else if (inP && outP) {
-                    int worked = calculateDuration(in, out);
+                    int worked = calculateDuration(inTimes, outTimes, d);
                     if (worked >= fullOtMinutes) {
                         m.totalOTDays++;
                         m.weekendFullOTMinutes += worked;
@@ -256,33 +296,151 @@ public class AttendanceReportGenerator {
 
     // ======================= HELPERS =======================
 
-    private int calculateDuration(String in, String out) {
-        if (in == null || out == null || in.isEmpty() || out.isEmpty()) return 0;
-        long m = Duration.between(LocalTime.parse(in), LocalTime.parse(out)).toMinutes();
+    private static int calculateDuration(DayTimes in, DayTimes out, int d) {
+        if (!in.present(d) || !out.present(d)) return 0;
+        long m = minutesBetween(in.at(d), out.at(d));
         return m < 0 ? (int) (m + 1440) : (int) m;
     }
 
-    private boolean isLate(String in) {
-        if (in == null || in.isEmpty()) return false;
-        LocalTime t = LocalTime.parse(in);
-        return t.isAfter(LocalTime.parse(onTimeEnd))
-                && !t.isAfter(LocalTime.parse(halfDayThreshold));
+    // Same as Duration.between(from, to).toMinutes() for two times of day
+    private static long minutesBetween(long fromNanos, long toNanos) {
+        return Math.floorDiv(toNanos - fromNanos, 1_000_000_000L) / 60;
     }
 
-    private boolean isAfterHalfDayThreshold(String in) {
-        return in != null && !in.isEmpty()
-                && LocalTime.parse(in).isAfter(LocalTime.parse(halfDayThreshold));
-    }
+    /**
+     * One time row of an employee as nanos of the day. Rows from an
+     * {@link AttendanceStore} are read from its minute arrays; other rows are
+     * parsed once. Text that is not a time stays unparsed until at() is
+     * called for it, which then fails like LocalTime.parse.
+     */
+    private static final class DayTimes {
+        private static final long ABSENT = -1, UNPARSED = -2;
+
+        private final long[] nanos;
+        private final String[] text;
+
+        private DayTimes(int days) {
+            nanos = new long[days];
+            text = new String[days];
+        }
 
-    private static boolean isWeekend(int y, int m, int d) {
-        DayOfWeek dow = LocalDate.of(y, m, d).getDayOfWeek();
-        return dow == DayOfWeek.SATURDAY || dow == DayOfWeek.SUNDAY;
+        static DayTimes of(EmployeeData emp, int col, int days) {
+            DayTimes times = new DayTimes(days);
+            List<String> values = emp.store == null ? emp.dailyData.get(AttendanceStore.COLUMNS[col]) : null;
+            for (int d = 0; d < days; d++) {
+                if (emp.store != null) {
+                    short v = emp.store.time(emp.row, col, d);
+                    if (AttendanceStore.isTimeOfDay(v)) {
+                        times.nanos[d] = AttendanceStore.minutes(v) * 60_000_000_000L;
+                        continue;
+                    }
+                    String value = emp.store.text(emp.row, col, d);
+                    times.set(d, value != null ? value.trim() : null);
+                } else {
+                    times.set(d, AttendanceUtils.safeGet(values, d));
+                }
+            }
+            return times;
+        }
+
+        private void set(int d, String value) {
+            if (value == null || value.isEmpty()) {
+                nanos[d] = ABSENT;
+                return;
+            }
+            try {
+                nanos[d] = LocalTime.parse(value).toNanoOfDay();
+            } catch (DateTimeException ex) {
+                nanos[d] = UNPARSED;
+                text[d] = value;
+            }
+        }
+
+        boolean present(int d) {
+            return nanos[d] != ABSENT;
+        }
+
+        long at(int d) {
+            return nanos[d] == UNPARSED ? LocalTime.parse(text[d]).toNanoOfDay() : nanos[d];
+        }
     }
 
     private double round2(double v) {
         return Math.round(v * 100.0) / 100.0;
     }
 
+    // ======================= SUMMARY ROWS =======================
+
+    /** Header line of the monthly summary CSV. */
+    public static final String CSV_HEADER =
+            "Employee Code," +
+            "Total Working Days," +
+            "Total Full Days," +
+            "Half Days Due To Duration," +
+            "Half Days Due To PunchMiss," +
+            "Half Days Due To Lates," +
+            "Total Half Days," +
+            "Total Lates," +
+            "Total Absent," +
+            "Total Punch Missed," +
+            "Total OT Days," +
+            "Total Half OT Days," +
+            "Total OT Hours";
+
+    /** Columns of the monthly summary shown in the report viewer. */
+    public static final String[] SUMMARY_HEADERS = CSV_HEADER.split(",");
+
+    /**
+     * One monthly summary CSV line (without line break).
+     */
+    public static String csvLine(EmployeeData emp, Metrics m) {
+        // Weekend/Holiday OT rounding rule:
+        // exact minutes → exact hours (NO 30-min block rounding)
+        double otHours = Math.round((m.totalOTMinutes / 60.0) * 100.0) / 100.0;
+
+        return String.format(
+                "%s,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%.2f",
+                emp.empId,
+                m.totalWorkingDays,
+                m.totalFullDays,
+                m.halfDaysDueToDuration,
+                m.halfDaysDueToPunchMiss,
+                m.halfDaysDueToLate,
+                m.halfDays,
+                m.totalLates,
+                m.totalAbsent,
+                m.totalPunchMissed,
+                m.totalOTDays,
+                m.totalHalfOTDays,
+                otHours);
+    }
+
+    /**
+     * One monthly summary row for the report viewer, in SUMMARY_HEADERS order.
+     */
+    public static String[] summaryRow(EmployeeData emp, Metrics m) {
+        String[] row = new String[SUMMARY_HEADERS.length];
+        int i = 0;
+        row[i++] = emp.empId;
+        row[i++] = String.valueOf(m.totalWorkingDays);
+        row[i++] = String.valueOf(m.totalFullDays);
+        row[i++] = String.valueOf(m.halfDaysDueToDuration);
+        row[i++] = String.valueOf(m.halfDaysDueToPunchMiss);
+        row[i++] = String.valueOf(m.halfDaysDueToLate);
+        row[i++] = String.valueOf(m.halfDays);
+        row[i++] = String.valueOf(m.totalLates);
+        row[i++] = String.valueOf(m.totalAbsent);
+        row[i++] = String.valueOf(m.totalPunchMissed);
+        row[i++] = String.valueOf(m.totalOTDays);
+        row[i++] = String.valueOf(m.totalHalfOTDays);
+
+        // Calculate total OT hours (convert minutes to hours)
+        double totalOTMinutes = m.workingDayOTMinutes + m.weekendFullOTMinutes + m.weekendHalfOTMinutes;
+        double totalOTHours = Math.round((totalOTMinutes / 60.0) * 100.0) / 100.0;
+        row[i++] = String.format("%.2f", totalOTHours);
+        return row;
+    }
+
     public void exportToCsv(String absolutePath,
             List<AttendanceMerger.EmployeeData> allEmployees,
             int monthDays,
@@ -290,61 +448,23 @@ public class AttendanceReportGenerator {
             int year,
             int month) {
 
-try (BufferedWriter writer = new BufferedWriter(new FileWriter(absolutePath))) {
-
-// CSV Header
-writer.write(
-    "Employee Code," +
-    "Total Working Days," +
-    "Total Full Days," +
-    "Half Days Due To Duration," +
-    "Half Days Due To PunchMiss," +
-    "Half Days Due To Lates," +
-    "Total Half Days," +
-    "Total Lates," +
-    "Total Absent," +
-    "Total Punch Missed," +
-    "Total OT Days," +
-    "Total Half OT Days," +
-    "Total OT Hours"
-);
-writer.newLine();
-
-// Data rows
-for (AttendanceMerger.EmployeeData emp : allEmployees) {
-
-Metrics m = computeMetrics(emp, monthDays, holidays, year, month);
-
-// Weekend/Holiday OT rounding rule:
-// exact minutes → exact hours (NO 30-min block rounding)
-double otHours = Math.round((m.totalOTMinutes / 60.0) * 100.0) / 100.0;
-
-writer.write(String.format(
-        "%s,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d,%.2f",
-        emp.empId,
-        m.totalWorkingDays,
-        m.totalFullDays,
-        m.halfDaysDueToDuration,
-        m.halfDaysDueToPunchMiss,
-        m.halfDaysDueToLate,
-        m.halfDays,
-        m.totalLates,
-        m.totalAbsent,
-        m.totalPunchMissed,
-        m.totalOTDays,
-        m.totalHalfOTDays,
-        otHours
-));
-writer.newLine();
-}
-
-System.out.println("✅ CSV exported successfully to: " + absolutePath);
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(absolutePath))) {
 
-} catch (Exception e) {
-throw new RuntimeException("Error exporting CSV: " + e.getMessage(), e);
-}
-}
+            // CSV Header
+            writer.write(CSV_HEADER);
+            writer.newLine();
 
+            // Data rows
+            MonthCalendar calendar = MonthCalendar.of(year, month, holidays);
+            for (AttendanceMerger.EmployeeData emp : allEmployees) {
+                writer.write(csvLine(emp, computeMetrics(emp, monthDays, calendar)));
+                writer.newLine();
+            }
 
+            System.out.println("✅ CSV exported successfully to: " + absolutePath);
 
+        } catch (Exception e) {
+            throw new RuntimeException("Error exporting CSV: " + e.getMessage(), e);
+        }
+    }
 }
@@ -0,0 +1,396 @@
+package org.bioparse.cleaning;
+
+import org.bioparse.cleaning.AttendanceMerger.EmployeeData;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Columnar storage for parsed employees.
+ *
+ * Instead of eight List&lt;String&gt; per employee, every known row of the
+ * Monthly Status Report is one flat array over all employee-days: times are
+ * minutes of the day in a short, Status is a byte {@link Status} code and
+ * Shift an index into a small dictionary. Values that do not fit an encoding
+ * (and rows with other labels) are kept as strings on the side, so nothing
+ * is lost.
+ *
+ * The list hands out EmployeeData whose dailyData is a read-only view that
+ * decodes cells on access, so existing consumers work unchanged; code that
+ * only needs numbers can read the arrays through {@link #time} and
+ * {@link #status}. The store is filled by one thread and read-only after.
+ */
+public class AttendanceStore extends AbstractList<EmployeeData> implements RandomAccess {
+
+    /** Rows with a fixed encoding, in Master sheet order. */
+    static final String[] COLUMNS = { "Status", "InTime", "OutTime", "Duration", "Late By", "Early By", "OT", "Shift" };
+    static final int STATUS = 0, IN_TIME = 1, OUT_TIME = 2, SHIFT = 7;
+    private static final int COLUMN_COUNT = COLUMNS.length;
+
+    // Time cells: minutes (| PADDED for "09:05" as opposed to "9:05") or a sentinel
+    public static final short EMPTY = -1;
+    public static final short NULL = -2;
+    public static final short OTHER = -3;
+    private static final short PADDED = 0x4000;
+
+    /** Day status codes; OTHER keeps the original text on the side. */
+    public enum Status {
+        EMPTY(""), P("P"), A("A"), WO("WO"), WOP("WOP"), H("H"), HP("HP"), HALF_P("½P"), NULL(null), OTHER(null);
+
+        public final String text;
+
+        Status(String text) {
+            this.text = text;
+        }
+
+        private static final Status[] CODES = values();
+
+        /** The code of a status text; OTHER if it has none. */
+        public static Status of(String text) {
+            for (Status s : CODES) {
+                if (s.text == null ? text == null : s.text.equals(text))
+                    return s;
+            }
+            return OTHER;
+        }
+
+        static Status ofCode(int code) {
+            return CODES[code];
+        }
+    }
+
+    // Decoded time strings, shared by all stores
+    private static final String[] PADDED_TEXT = new String[PADDED];
+    private static final String[] PLAIN_TEXT = new String[PADDED];
+
+    private String[] ids = new String[64];
+    private String[] names = new String[64];
+    private int[] base = new int[64];
+    private int[] layout = new int[64];
+    // Cell count per employee and row; -1 when the employee has no such row
+    private int[] lengths = new int[64 * COLUMN_COUNT];
+    private int size;
+
+    private byte[] status = new byte[2048];
+    private final short[][] times = new short[COLUMN_COUNT][];
+    private int[] shift = new int[2048];
+    private int cells;
+
+    private final List<String> shiftNames = new ArrayList<>();
+    private final Map<String, Integer> shiftCodes = new HashMap<>();
+    private final List<String[]> layouts = new ArrayList<>();
+    private final Map<List<String>, Integer> layoutCodes = new HashMap<>();
+    // Cell index * COLUMN_COUNT + column -> original text of an OTHER cell
+    private final Map<Long, String> overflow = new HashMap<>();
+    private final Map<Integer, Map<String, List<String>>> extraRows = new HashMap<>();
+
+    public AttendanceStore() {
+        for (int col = IN_TIME; col < SHIFT; col++) {
+            times[col] = new short[status.length];
+        }
+    }
+
+    @Override
+    public boolean add(EmployeeData emp) {
+        if (size == ids.length) {
+            int grown = size * 2;
+            ids = Arrays.copyOf(ids, grown);
+            names = Arrays.copyOf(names, grown);
+            base = Arrays.copyOf(base, grown);
+            layout = Arrays.copyOf(layout, grown);
+            lengths = Arrays.copyOf(lengths, grown * COLUMN_COUNT);
+        }
+        int row = size;
+        ids[row] = emp.empId;
+        names[row] = emp.empName;
+        base[row] = cells;
+        layout[row] = layoutCode(emp.dailyData.keySet().toArray(new String[0]));
+        Arrays.fill(lengths, row * COLUMN_COUNT, (row + 1) * COLUMN_COUNT, -1);
+
+        int width = 0;
+        for (List<String> values : emp.dailyData.values()) {
+            width = Math.max(width, values.size());
+        }
+        ensureCells(cells + width);
+
+        for (Map.Entry<String, List<String>> entry : emp.dailyData.entrySet()) {
+            int col = columnOf(entry.getKey());
+            List<String> values = entry.getValue();
+            if (col < 0) {
+                extraRows.computeIfAbsent(row, r -> new HashMap<>()).put(entry.getKey(), new ArrayList<>(values));
+                continue;
+            }
+            lengths[row * COLUMN_COUNT + col] = values.size();
+            for (int d = 0; d < values.size(); d++) {
+                encode(col, cells + d, values.get(d));
+            }
+        }
+
+        cells += width;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public EmployeeData get(int row) {
+        if (row < 0 || row >= size)
+            throw new IndexOutOfBoundsException("Index: " + row + ", Size: " + size);
+        EmployeeData emp = new EmployeeData();
+        emp.empId = ids[row];
+        emp.empName = names[row];
+        emp.store = this;
+        emp.row = row;
+        emp.dailyData = new RowView(row);
+        return emp;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /** Column index of a row label, or -1 if it has no fixed encoding. */
+    static int columnOf(Object label) {
+        for (int col = 0; col < COLUMN_COUNT; col++) {
+            if (COLUMNS[col].equals(label))
+                return col;
+        }
+        return -1;
+    }
+
+    /**
+     * Encoded time cell of a time column (IN_TIME to OT) for one day: minutes
+     * (see {@link #minutes}), or EMPTY, NULL or OTHER.
+     */
+    public short time(int row, int col, int day) {
+        if (day >= lengths[row * COLUMN_COUNT + col])
+            return NULL;
+        return times[col][base[row] + day];
+    }
+
+    /** Minutes of an encoded time cell. */
+    public static int minutes(short time) {
+        return time & (PADDED - 1);
+    }
+
+    /**
+     * True if an encoded time cell is a valid "HH:mm" time of day, i.e. text
+     * that {@link java.time.LocalTime#parse} accepts.
+     */
+    public static boolean isTimeOfDay(short time) {
+        return time >= 0 && minutes(time) < 24 * 60 && ((time & PADDED) != 0 || minutes(time) >= 600);
+    }
+
+    public Status status(int row, int day) {
+        if (day >= lengths[row * COLUMN_COUNT + STATUS])
+            return Status.NULL;
+        return Status.CODES[status[base[row] + day]];
+    }
+
+    /** The original text of a cell, as the List view returns it. */
+    public String text(int row, int col, int day) {
+        int cell = base[row] + day;
+        if (day >= lengths[row * COLUMN_COUNT + col])
+            return null;
+        if (col == STATUS) {
+            Status s = Status.CODES[status[cell]];
+            return s == Status.OTHER ? overflow.get(key(cell, col)) : s.text;
+        }
+        if (col == SHIFT) {
+            int code = shift[cell];
+            return code < 0 ? null : shiftNames.get(code);
+        }
+        short v = times[col][cell];
+        if (v == EMPTY)
+            return "";
+        if (v == NULL)
+            return null;
+        if (v == OTHER)
+            return overflow.get(key(cell, col));
+        return formatTime(v);
+    }
+
+    private void encode(int col, int cell, String value) {
+        if (col == STATUS) {
+            Status code = Status.of(value);
+            if (code == Status.OTHER)
+                overflow.put(key(cell, col), value);
+            status[cell] = (byte) code.ordinal();
+        } else if (col == SHIFT) {
+            if (value == null) {
+                shift[cell] = -1;
+            } else {
+                Integer code = shiftCodes.get(value);
+                if (code == null) {
+                    code = shiftNames.size();
+                    shiftNames.add(value);
+                    shiftCodes.put(value, code);
+                }
+                shift[cell] = code;
+            }
+        } else {
+            short v = encodeTime(value);
+            if (v == OTHER)
+                overflow.put(key(cell, col), value);
+            times[col][cell] = v;
+        }
+    }
+
+    /**
+     * "H:mm" or "HH:mm" as minutes, flagged when the hour has a leading zero.
+     * Anything that would not format back to the same text is OTHER.
+     */
+    static short encodeTime(String value) {
+        if (value == null)
+            return NULL;
+        if (value.isEmpty())
+            return EMPTY;
+
+        int colon = value.indexOf(':');
+        if (colon < 1 || colon > 3 || value.length() != colon + 3)
+            return OTHER;
+        int hours = 0;
+        for (int i = 0; i < colon; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9')
+                return OTHER;
+            hours = hours * 10 + (c - '0');
+        }
+        char m1 = value.charAt(colon + 1), m2 = value.charAt(colon + 2);
+        if (m1 < '0' || m1 > '5' || m2 < '0' || m2 > '9')
+            return OTHER;
+        int minutes = hours * 60 + (m1 - '0') * 10 + (m2 - '0');
+        if (minutes >= PADDED)
+            return OTHER;
+
+        short v = (short) (colon == 2 && hours < 10 ? minutes | PADDED : minutes);
+        return formatTime(v).equals(value) ? v : OTHER;
+    }
+
+    static String formatTime(short v) {
+        int minutes = minutes(v);
+        String[] table = (v & PADDED) != 0 ? PADDED_TEXT : PLAIN_TEXT;
+        String text = table[minutes];
+        if (text == null) {
+            int h = minutes / 60, m = minutes % 60;
+            text = ((v & PADDED) != 0 ? "0" + h : String.valueOf(h)) + (m < 10 ? ":0" : ":") + m;
+            table[minutes] = text;
+        }
+        return text;
+    }
+
+    private int layoutCode(String[] labels) {
+        List<String> key = Arrays.asList(labels);
+        Integer code = layoutCodes.get(key);
+        if (code == null) {
+            code = layouts.size();
+            layouts.add(labels);
+            layoutCodes.put(key, code);
+        }
+        return code;
+    }
+
+    private void ensureCells(int needed) {
+        if (needed <= status.length)
+            return;
+        int grown = Math.max(needed, status.length * 2);
+        status = Arrays.copyOf(status, grown);
+        shift = Arrays.copyOf(shift, grown);
+        for (int col = IN_TIME; col < SHIFT; col++) {
+            times[col] = Arrays.copyOf(times[col], grown);
+        }
+    }
+
+    private static long key(int cell, int col) {
+        return (long) cell * COLUMN_COUNT + col;
+    }
+
+    /**
+     * dailyData of one employee: the labels in their original order, each
+     * mapped to a list that decodes its cells on access.
+     */
+    private class RowView extends AbstractMap<String, List<String>> {
+        private final int row;
+
+        RowView(int row) {
+            this.row = row;
+        }
+
+        @Override
+        public List<String> get(Object label) {
+            int col = columnOf(label);
+            if (col < 0) {
+                Map<String, List<String>> extras = extraRows.get(row);
+                return extras != null ? extras.get(label) : null;
+            }
+            int length = lengths[row * COLUMN_COUNT + col];
+            return length < 0 ? null : new CellList(row, col, length);
+        }
+
+        @Override
+        public boolean containsKey(Object label) {
+            return get(label) != null;
+        }
+
+        @Override
+        public Set<Entry<String, List<String>>> entrySet() {
+            String[] labels = layouts.get(layout[row]);
+            return new AbstractSet<Entry<String, List<String>>>() {
+                @Override
+                public Iterator<Entry<String, List<String>>> iterator() {
+                    return new Iterator<Entry<String, List<String>>>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < labels.length;
+                        }
+
+                        @Override
+                        public Entry<String, List<String>> next() {
+                            String label = labels[next++];
+                            return new SimpleImmutableEntry<>(label, get(label));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return labels.length;
+                }
+            };
+        }
+    }
+
+    private class CellList extends AbstractList<String> implements RandomAccess {
+        private final int row, col, length;
+
+        CellList(int row, int col, int length) {
+            this.row = row;
+            this.col = col;
+            this.length = length;
+        }
+
+        @Override
+        public String get(int day) {
+            if (day < 0 || day >= length)
+                throw new IndexOutOfBoundsException("Index: " + day + ", Size: " + length);
+            return text(row, col, day);
+        }
+
+        @Override
+        public int size() {
+            return length;
+        }
+    }
+}
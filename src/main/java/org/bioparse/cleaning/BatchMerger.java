@@ -0,0 +1,332 @@
+package org.bioparse.cleaning;
+
+import org.bioparse.cleaning.AttendanceMerger.EmployeeData;
+import org.bioparse.cleaning.AttendanceMerger.MergeOptions;
+import org.bioparse.cleaning.AttendanceMerger.MergeResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Merges the monthly exports of several branches into one MergeResult and
+ * one Master sheet.
+ *
+ * Inputs are a list of files and/or directories, given as one string joined
+ * with {@link File#pathSeparator}, so {@link AttendanceMerger#merge} and
+ * {@link MergePipeline} accept a batch wherever they accept a single file.
+ * Files are parsed concurrently, at most
+ * {@link MergeOptions#batchParallelism} at a time, and combined in input
+ * order. An employee found in several exports (e.g. moved between branches
+ * mid-month) appears once, under the first file's block, with the days it
+ * was absent there filled in from the later files. All files must cover the
+ * same month; a batch with an export of another month fails, naming it.
+ */
+public class BatchMerger {
+
+    private BatchMerger() {
+    }
+
+    /**
+     * True if the input string names a directory or more than one file.
+     */
+    public static boolean isBatch(String inputs) {
+        return inputs.contains(File.pathSeparator) || new File(inputs).isDirectory();
+    }
+
+    /**
+     * Expand an input string into the export files it names: listed files as
+     * given, directories as their supported files sorted by name.
+     */
+    public static List<String> inputFiles(String inputs) {
+        List<String> files = new ArrayList<>();
+        for (String part : inputs.split(java.util.regex.Pattern.quote(File.pathSeparator))) {
+            part = part.trim();
+            if (part.isEmpty())
+                continue;
+            File file = new File(part);
+            if (file.isDirectory()) {
+                File[] children = file.listFiles(f -> f.isFile() && isExport(f.getName()));
+                if (children != null) {
+                    Arrays.sort(children);
+                    for (File child : children) {
+                        files.add(child.getPath());
+                    }
+                }
+            } else {
+                files.add(part);
+            }
+        }
+        return files;
+    }
+
+    private static boolean isExport(String name) {
+        String lower = name.toLowerCase();
+        // "~$" files are Excel's lock files for workbooks that are open
+        return !lower.startsWith("~$") && (lower.endsWith(".xlsx") || lower.endsWith(".xls")
+                || DelimitedReader.accepts(lower));
+    }
+
+    /**
+     * Parse every input, then hand the combined employees to the sink in
+     * input order. Each file goes through {@link AttendanceMerger#parse}, so
+     * the cache and the per-file options apply as for a single merge.
+     */
+    static MergeResult parse(String inputs, MergeOptions options, AttendanceMerger.EmployeeSink sink)
+            throws Exception {
+        List<String> files = inputFiles(inputs);
+        if (files.isEmpty()) {
+            throw new IOException("No attendance exports found in " + inputs);
+        }
+        for (String file : files) {
+            if (!new File(file).isFile()) {
+                throw new IOException("Input file not found: " + file);
+            }
+        }
+
+        System.out.println("\n========================================");
+        System.out.println("Batch merge: " + files.size() + " files, " + options.batchParallelism + " at a time");
+        System.out.println("========================================");
+
+        BatchProgress progress = options.progress != null ? new BatchProgress(options.progress, files.size()) : null;
+        List<MergeResult> results = new ArrayList<>();
+        ExecutorService pool = Executors
+                .newFixedThreadPool(Math.max(1, Math.min(options.batchParallelism, files.size())));
+        try {
+            List<Future<MergeResult>> futures = new ArrayList<>();
+            for (int f = 0; f < files.size(); f++) {
+                String file = files.get(f);
+                MergeOptions fileOptions = options.copy();
+                // Half the budget is shared by the per-file results, half is the combined result's
+                fileOptions.heapBudgetMB = options.heapBudgetMB > 0
+                        ? Math.max(1, options.heapBudgetMB / (2 * files.size()))
+                        : 0;
+                fileOptions.progress = progress != null ? progress.forFile(f) : null;
+                futures.add(pool.submit(() -> {
+                    MergeResult result = AttendanceMerger.parse(file, fileOptions, (emp, d, y, m) -> {
+                    });
+                    if (progress != null) {
+                        progress.fileDone();
+                    }
+                    return result;
+                }));
+            }
+            for (Future<MergeResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    throw cause instanceof Exception ? (Exception) cause : new RuntimeException(cause);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        MergeOptions combinedOptions = options.copy();
+        combinedOptions.heapBudgetMB = options.heapBudgetMB > 0 ? Math.max(1, options.heapBudgetMB / 2) : 0;
+        MergeResult combined;
+        try {
+            combined = combine(files, results, AttendanceMerger.newEmployeeList(combinedOptions));
+        } finally {
+            for (MergeResult result : results) {
+                if (result.allEmployees instanceof EmployeeSpillList)
+                    ((EmployeeSpillList) result.allEmployees).close();
+            }
+        }
+        for (EmployeeData emp : combined.allEmployees) {
+            sink.accept(emp, combined.monthDays, combined.year, combined.month);
+        }
+        return combined;
+    }
+
+    /**
+     * Combine per-file results into one, de-duplicating employees by id, by
+     * adding them to combined. Fails if any file covers another month than
+     * the most common one, so no branch drops out of the Master sheet
+     * unnoticed.
+     *
+     * Two passes over the results, so no more than one employee (with its
+     * duplicates) is held at a time beyond what the lists themselves keep: the
+     * first finds where every id occurs, the second adds each employee at its
+     * first occurrence with its later duplicates filled in.
+     */
+    private static MergeResult combine(List<String> files, List<MergeResult> results, List<EmployeeData> combined)
+            throws IOException {
+        Map<Integer, Integer> monthVotes = new HashMap<>();
+        for (MergeResult result : results) {
+            monthVotes.merge(result.year * 12 + result.month - 1, 1, Integer::sum);
+        }
+        MergeResult first = results.get(0);
+        int key = first.year * 12 + first.month - 1;
+        for (Map.Entry<Integer, Integer> vote : monthVotes.entrySet()) {
+            if (vote.getValue() > monthVotes.get(key))
+                key = vote.getKey();
+        }
+        int year = key / 12, month = key % 12 + 1;
+
+        List<String> otherMonths = new ArrayList<>();
+        for (int f = 0; f < results.size(); f++) {
+            MergeResult result = results.get(f);
+            if (result.year != year || result.month != month) {
+                otherMonths.add(new File(files.get(f)).getName() + " (" + result.month + "/" + result.year + ")");
+            }
+        }
+        if (!otherMonths.isEmpty()) {
+            throw new IOException(otherMonths.size() + " of " + files.size() + " exports cover another month than "
+                    + month + "/" + year + ": " + String.join(", ", otherMonths)
+                    + ". Remove them from the batch or merge them separately.");
+        }
+
+        // Positions are file << 32 | index in the file
+        Map<String, Long> firstSeen = new HashMap<>();
+        Map<String, List<Long>> duplicatesOf = new HashMap<>();
+        for (int f = 0; f < results.size(); f++) {
+            List<EmployeeData> employees = results.get(f).allEmployees;
+            for (int i = 0; i < employees.size(); i++) {
+                String id = idOf(employees.get(i));
+                long position = (long) f << 32 | i;
+                if (!id.isEmpty() && firstSeen.putIfAbsent(id, position) != null) {
+                    duplicatesOf.computeIfAbsent(id, k -> new ArrayList<>()).add(position);
+                }
+            }
+        }
+
+        int monthDays = 0, duplicates = 0;
+        for (int f = 0; f < results.size(); f++) {
+            MergeResult result = results.get(f);
+            monthDays = result.monthDays;
+            for (int i = 0; i < result.allEmployees.size(); i++) {
+                EmployeeData emp = result.allEmployees.get(i);
+                String id = idOf(emp);
+                if (!id.isEmpty() && firstSeen.get(id) != ((long) f << 32 | i))
+                    continue;
+                List<Long> later = id.isEmpty() ? null : duplicatesOf.get(id);
+                if (later != null) {
+                    if (emp.store != null) {
+                        // Store rows are read-only views
+                        emp = copyOf(emp);
+                    }
+                    for (long position : later) {
+                        MergeResult other = results.get((int) (position >>> 32));
+                        fillAbsentDays(emp, other.allEmployees.get((int) position), other.monthDays);
+                        duplicates++;
+                    }
+                }
+                combined.add(emp);
+            }
+            System.out.println("✓ " + new File(files.get(f)).getName() + ": " + result.allEmployees.size()
+                    + " employees");
+        }
+
+        if (duplicates > 0) {
+            System.out.println("✓ Merged " + duplicates + " employees found in more than one export");
+        }
+        return new MergeResult(combined, monthDays, year, month);
+    }
+
+    private static String idOf(EmployeeData emp) {
+        return emp.empId != null ? emp.empId.trim() : "";
+    }
+
+    private static EmployeeData copyOf(EmployeeData emp) {
+        EmployeeData copy = new EmployeeData();
+        copy.empId = emp.empId;
+        copy.empName = emp.empName;
+        for (Map.Entry<String, List<String>> entry : emp.dailyData.entrySet()) {
+            copy.dailyData.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+        return copy;
+    }
+
+    /**
+     * Copy every day on which kept has no attendance but other does.
+     */
+    private static void fillAbsentDays(EmployeeData kept, EmployeeData other, int monthDays) {
+        for (int d = 0; d < monthDays; d++) {
+            if (hasAttendance(kept, d) || !hasAttendance(other, d))
+                continue;
+            for (Map.Entry<String, List<String>> entry : other.dailyData.entrySet()) {
+                String value = d < entry.getValue().size() ? entry.getValue().get(d) : null;
+                List<String> target = kept.dailyData.computeIfAbsent(entry.getKey(), k -> new ArrayList<>());
+                while (target.size() <= d) {
+                    target.add("");
+                }
+                target.set(d, value);
+            }
+        }
+    }
+
+    private static boolean hasAttendance(EmployeeData emp, int day) {
+        return !valueAt(emp, "InTime", day).isEmpty() || TextClassifier.isPresentStatus(valueAt(emp, "Status", day));
+    }
+
+    private static String valueAt(EmployeeData emp, String label, int day) {
+        List<String> values = emp.dailyData.get(label);
+        String value = values != null && day < values.size() ? values.get(day) : null;
+        return value != null ? value.trim() : "";
+    }
+
+    /**
+     * Sums the progress of the files being parsed into one batch-wide report:
+     * files stand in for sheets.
+     */
+    private static class BatchProgress {
+        private final MergeProgress progress;
+        private final int totalFiles;
+        private final long[] rows;
+        private final int[] employees;
+        private final AtomicInteger filesDone = new AtomicInteger();
+
+        BatchProgress(MergeProgress progress, int totalFiles) {
+            this.progress = progress;
+            this.totalFiles = totalFiles;
+            this.rows = new long[totalFiles];
+            this.employees = new int[totalFiles];
+        }
+
+        MergeProgress forFile(int index) {
+            return new MergeProgress() {
+                @Override
+                public void update(int sheetsDone, int totalSheets, long rowsRead, int employeeCount) {
+                    synchronized (BatchProgress.this) {
+                        rows[index] = rowsRead;
+                        employees[index] = employeeCount;
+                    }
+                    report();
+                }
+
+                @Override
+                public boolean isCancelled() {
+                    return progress.isCancelled();
+                }
+            };
+        }
+
+        void fileDone() {
+            filesDone.incrementAndGet();
+            report();
+        }
+
+        private void report() {
+            long totalRows = 0;
+            int totalEmployees = 0;
+            synchronized (this) {
+                for (int f = 0; f < totalFiles; f++) {
+                    totalRows += rows[f];
+                    totalEmployees += employees[f];
+                }
+            }
+            progress.update(filesDone.get(), totalFiles, totalRows, totalEmployees);
+        }
+    }
+}
@@ -299,6 +299,12 @@ public class ChartDataGenerator {
     // ==================== COMPACT CHART METHODS ====================
 
     public static JPanel createAttendanceTrendChart(java.util.List<AttendanceMerger.EmployeeData> employees, int monthDays) {
+        return createAttendanceTrendChart(new AttendanceMerger.MergeResult(employees, monthDays, 0, 0));
+    }
+
+    public static JPanel createAttendanceTrendChart(AttendanceMerger.MergeResult result) {
+        int monthDays = result.monthDays;
+        StatusBitmaps statuses = result.statuses();
         return new CompactBarChart("Daily Trend", "Day", "Count") {
             private static final long serialVersionUID = 1L;
             
@@ -310,15 +316,8 @@ public class ChartDataGenerator {
                 
                 // Sample every 3 days for compactness
                 for (int day = 1; day <= monthDays; day += 3) {
-                    int present = 0, absent = 0;
-                    for (AttendanceMerger.EmployeeData emp : employees) {
-                        String status = AttendanceUtils.safeGet(emp.dailyData.get("Status"), day - 1);
-                        if ("P".equalsIgnoreCase(status) || "WO".equalsIgnoreCase(status) || "WOP".equalsIgnoreCase(status)) {
-                            present++;
-                        } else if ("A".equalsIgnoreCase(status)) absent++;
-                    }
-                    data.get("P").add((double) present);
-                    data.get("A").add((double) absent);
+                    data.get("P").add((double) statuses.present(day - 1).cardinality());
+                    data.get("A").add((double) statuses.absent(day - 1).cardinality());
                 }
                 return data;
             }
@@ -408,7 +407,7 @@ public class ChartDataGenerator {
                     java.util.List<String> statusList = emp.dailyData.get("Status");
                     if (statusList != null) {
                         for (String s : statusList) {
-                            if ("P".equalsIgnoreCase(s) || "WO".equalsIgnoreCase(s) || "WOP".equalsIgnoreCase(s)) present++;
+                            if (TextClassifier.isPresentStatus(s)) present++;
                         }
                     }
                     double rate = (present * 100.0) / monthDays;
@@ -443,7 +442,7 @@ public class ChartDataGenerator {
                     for (int i = 0; i < Math.min(inTimes.size(), statusList.size()); i++) {
                         String status = statusList.get(i);
                         String inTime = inTimes.get(i);
-                        if (!("P".equalsIgnoreCase(status) || "WO".equalsIgnoreCase(status) || "WOP".equalsIgnoreCase(status))) continue;
+                        if (!TextClassifier.isPresentStatus(status)) continue;
                         if (!isLateArrival(inTime)) continue;
                         try {
                             LocalTime arrival = LocalTime.parse(inTime);
@@ -506,6 +505,12 @@ public class ChartDataGenerator {
     }
 
     public static JPanel createDailyAttendanceLineChart(java.util.List<AttendanceMerger.EmployeeData> employees, int monthDays) {
+        return createDailyAttendanceLineChart(new AttendanceMerger.MergeResult(employees, monthDays, 0, 0));
+    }
+
+    public static JPanel createDailyAttendanceLineChart(AttendanceMerger.MergeResult result) {
+        int monthDays = result.monthDays;
+        StatusBitmaps statuses = result.statuses();
         return new CompactLineChart("Daily Trend", "Day", "Count") {
             private static final long serialVersionUID = 1L;
             
@@ -516,14 +521,8 @@ public class ChartDataGenerator {
                 
                 // Sample data points (reduce for compactness)
                 for (int day = 1; day <= monthDays; day += 2) {
-                    int p = 0, a = 0;
-                    for (AttendanceMerger.EmployeeData emp : employees) {
-                        String status = AttendanceUtils.safeGet(emp.dailyData.get("Status"), day - 1);
-                        if ("P".equalsIgnoreCase(status) || "WO".equalsIgnoreCase(status) || "WOP".equalsIgnoreCase(status)) p++;
-                        else if ("A".equalsIgnoreCase(status)) a++;
-                    }
-                    present.add((double)p); 
-                    absent.add((double)a);
+                    present.add((double) statuses.present(day - 1).cardinality());
+                    absent.add((double) statuses.absent(day - 1).cardinality());
                 }
                 
                 Map<String, java.util.List<Double>> data = new LinkedHashMap<>();
@@ -535,6 +534,12 @@ public class ChartDataGenerator {
     }
 
     public static JPanel createWeeklyAttendanceChart(java.util.List<AttendanceMerger.EmployeeData> employees, int monthDays) {
+        return createWeeklyAttendanceChart(new AttendanceMerger.MergeResult(employees, monthDays, 0, 0));
+    }
+
+    public static JPanel createWeeklyAttendanceChart(AttendanceMerger.MergeResult result) {
+        int monthDays = result.monthDays;
+        StatusBitmaps statuses = result.statuses();
         return new CompactBarChart("Weekly Pattern", "Week", "Days") {
             private static final long serialVersionUID = 1L;
             
@@ -549,12 +554,8 @@ public class ChartDataGenerator {
                     int present = 0, absent = 0;
                     int start = w * 7 + 1, end = Math.min(start + 6, monthDays);
                     for (int d = start; d <= end; d++) {
-                        for (AttendanceMerger.EmployeeData emp : employees) {
-                            String status = AttendanceUtils.safeGet(emp.dailyData.get("Status"), d - 1);
-                            if ("P".equalsIgnoreCase(status) || "WO".equalsIgnoreCase(status) || "WOP".equalsIgnoreCase(status)) {
-                                present++;
-                            } else if ("A".equalsIgnoreCase(status)) absent++;
-                        }
+                        present += statuses.present(d - 1).cardinality();
+                        absent += statuses.absent(d - 1).cardinality();
                     }
                     data.get("P").add((double)present);
                     data.get("A").add((double)absent);
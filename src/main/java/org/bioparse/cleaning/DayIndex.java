@@ -0,0 +1,156 @@
+package org.bioparse.cleaning;
+
+import org.bioparse.cleaning.AttendanceMerger.EmployeeData;
+import org.bioparse.cleaning.AttendanceStore.Status;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Day-major copy of the InTime, OutTime and Status rows of a merge: the
+ * values of all employees for one day sit next to each other, so by-date
+ * and date-range queries scan a few primitive arrays instead of looking up
+ * three lists per employee and day.
+ *
+ * Cells hold the trimmed text (as {@link AttendanceUtils#safeGet} returns
+ * it) in the {@link AttendanceStore} encodings; missing cells read as "".
+ * Built once by {@link AttendanceMerger.MergeResult#index()} and read-only
+ * after.
+ */
+public class DayIndex {
+
+    private final int employees;
+    private final int days;
+    private final String[] ids;
+    private final String[] names;
+
+    // Cell of employee e on day d: d * employees + e
+    private final short[] inTimes;
+    private final short[] outTimes;
+    private final byte[] status;
+    // Cell * 3 + column slot -> text of an OTHER cell
+    private final Map<Long, String> overflow = new HashMap<>();
+
+    DayIndex(List<EmployeeData> allEmployees) {
+        this.employees = allEmployees.size();
+        this.ids = new String[employees];
+        this.names = new String[employees];
+
+        // Two passes over the list, so a spilled result is never held as a whole
+        int width = 0;
+        for (EmployeeData emp : allEmployees) {
+            for (int col = AttendanceStore.STATUS; col <= AttendanceStore.OUT_TIME; col++) {
+                List<String> values = emp.dailyData.get(AttendanceStore.COLUMNS[col]);
+                if (values != null)
+                    width = Math.max(width, values.size());
+            }
+        }
+        this.days = width;
+        this.inTimes = new short[days * employees];
+        this.outTimes = new short[days * employees];
+        this.status = new byte[days * employees];
+
+        for (int e = 0; e < employees; e++) {
+            EmployeeData emp = allEmployees.get(e);
+            ids[e] = emp.empId;
+            names[e] = emp.empName;
+            for (int col = AttendanceStore.STATUS; col <= AttendanceStore.OUT_TIME; col++) {
+                List<String> values = emp.dailyData.get(AttendanceStore.COLUMNS[col]);
+                for (int d = 0; d < days; d++) {
+                    int cell = d * employees + e;
+                    if (emp.store != null) {
+                        // Columnar rows are already encoded; only odd cells need their text
+                        if (col == AttendanceStore.STATUS) {
+                            Status s = emp.store.status(emp.row, d);
+                            if (s != Status.OTHER) {
+                                status[cell] = (byte) (s == Status.NULL ? Status.EMPTY : s).ordinal();
+                                continue;
+                            }
+                        } else {
+                            short v = emp.store.time(emp.row, col, d);
+                            if (v != AttendanceStore.OTHER) {
+                                times(col)[cell] = v == AttendanceStore.NULL ? AttendanceStore.EMPTY : v;
+                                continue;
+                            }
+                        }
+                    }
+                    encode(col, cell, AttendanceUtils.safeGet(values, d));
+                }
+            }
+        }
+    }
+
+    private void encode(int col, int cell, String value) {
+        if (col == AttendanceStore.STATUS) {
+            Status code = Status.of(value);
+            if (code == Status.OTHER)
+                overflow.put(key(cell, col), value);
+            status[cell] = (byte) code.ordinal();
+        } else {
+            short v = AttendanceStore.encodeTime(value);
+            if (v == AttendanceStore.OTHER)
+                overflow.put(key(cell, col), value);
+            times(col)[cell] = v;
+        }
+    }
+
+    public int employees() {
+        return employees;
+    }
+
+    /** Days with at least one indexed cell; later days read as "". */
+    public int days() {
+        return days;
+    }
+
+    public String empId(int emp) {
+        return ids[emp];
+    }
+
+    public String empName(int emp) {
+        return names[emp];
+    }
+
+    /**
+     * Encoded InTime (IN_TIME) or OutTime (OUT_TIME) of an employee on a
+     * zero-based day: minutes (see {@link AttendanceStore#minutes}), EMPTY or
+     * OTHER.
+     */
+    public short time(int col, int day, int emp) {
+        return day < days ? times(col)[day * employees + emp] : AttendanceStore.EMPTY;
+    }
+
+    public Status status(int day, int emp) {
+        return day < days ? Status.ofCode(status[day * employees + emp]) : Status.EMPTY;
+    }
+
+    /** Trimmed text of an InTime, OutTime or Status cell; "" when missing. */
+    public String text(int col, int day, int emp) {
+        if (day >= days)
+            return "";
+        int cell = day * employees + emp;
+        if (col == AttendanceStore.STATUS) {
+            Status s = Status.ofCode(status[cell]);
+            return s == Status.OTHER ? overflow.get(key(cell, col)) : s.text;
+        }
+        short v = times(col)[cell];
+        if (v == AttendanceStore.EMPTY)
+            return "";
+        if (v == AttendanceStore.OTHER)
+            return overflow.get(key(cell, col));
+        return AttendanceStore.formatTime(v);
+    }
+
+    private short[] times(int col) {
+        if (col == AttendanceStore.IN_TIME)
+            return inTimes;
+        if (col == AttendanceStore.OUT_TIME)
+            return outTimes;
+        throw new IllegalArgumentException("Not an indexed time column: " + col);
+    }
+
+    private static long key(int cell, int col) {
+        return (long) cell * 3 + col;
+    }
+}
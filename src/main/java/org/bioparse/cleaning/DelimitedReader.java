@@ -0,0 +1,197 @@
+package org.bioparse.cleaning;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads a Monthly Status Report exported as CSV or tab-delimited text and
+ * feeds each line to an {@link EmployeeBlockParser}, exactly like the sheet
+ * readers do for one sheet.
+ *
+ * The file is memory-mapped and tokenized in place; only non-empty field
+ * values are turned into Strings. Quoted fields follow RFC 4180 (doubled
+ * quotes, embedded delimiters and line breaks).
+ */
+public class DelimitedReader {
+
+    private final MappedByteBuffer buf;
+    private final int limit;
+    private final byte delimiter;
+    private int pos;
+
+    // Field bytes of the current value, reused between fields
+    private byte[] scratch = new byte[256];
+    private final List<String> cells = new ArrayList<>();
+    private final StringPool pool = new StringPool();
+
+    private DelimitedReader(MappedByteBuffer buf, byte delimiter) {
+        this.buf = buf;
+        this.limit = buf.limit();
+        this.delimiter = delimiter;
+        skipBom();
+    }
+
+    /**
+     * True for the file extensions this reader handles.
+     */
+    public static boolean accepts(String inputFilePath) {
+        String lower = inputFilePath.toLowerCase();
+        return lower.endsWith(".csv") || lower.endsWith(".tsv") || lower.endsWith(".txt");
+    }
+
+    public static void read(String inputFilePath, EmployeeBlockParser parser) throws IOException {
+        System.out.println("\n========================================");
+        System.out.println("Processing file: " + new File(inputFilePath).getName());
+        System.out.println("========================================");
+
+        parser.setTotalSheets(1);
+        parser.startSheet();
+        forEachRow(inputFilePath, parser::row);
+        parser.endSheet();
+    }
+
+    /**
+     * Tokenize a delimited file and hand every non-empty line to rowHandler.
+     */
+    public static void forEachRow(String inputFilePath, Consumer<String[]> rowHandler) throws IOException {
+        try (FileChannel ch = FileChannel.open(new File(inputFilePath).toPath(), StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Delimited export larger than 2 GB: " + inputFilePath);
+            }
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            DelimitedReader reader = new DelimitedReader(buf, detectDelimiter(buf, inputFilePath));
+
+            String[] row;
+            while ((row = reader.nextRow()) != null) {
+                if (row.length > 0) {
+                    rowHandler.accept(row);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tab for .tsv, comma for .csv; for .txt whichever occurs more often in the
+     * first 64 KB.
+     */
+    private static byte detectDelimiter(MappedByteBuffer buf, String inputFilePath) {
+        String lower = inputFilePath.toLowerCase();
+        if (lower.endsWith(".tsv"))
+            return '\t';
+        if (lower.endsWith(".csv"))
+            return ',';
+
+        int tabs = 0, commas = 0;
+        int end = Math.min(buf.limit(), 1 << 16);
+        for (int i = 0; i < end; i++) {
+            byte b = buf.get(i);
+            if (b == '\t')
+                tabs++;
+            else if (b == ',')
+                commas++;
+        }
+        return tabs >= commas ? (byte) '\t' : (byte) ',';
+    }
+
+    private void skipBom() {
+        if (limit >= 3 && (buf.get(0) & 0xFF) == 0xEF && (buf.get(1) & 0xFF) == 0xBB && (buf.get(2) & 0xFF) == 0xBF) {
+            pos = 3;
+        }
+    }
+
+    /**
+     * The next line split into fields (null for empty fields, trailing empty
+     * fields dropped), or null at end of file.
+     */
+    private String[] nextRow() {
+        if (pos >= limit)
+            return null;
+
+        cells.clear();
+        while (true) {
+            cells.add(nextField());
+            if (pos >= limit)
+                break;
+            byte b = buf.get(pos);
+            if (b == delimiter) {
+                pos++;
+                continue;
+            }
+            // End of line: \n, \r\n or \r
+            pos++;
+            if (b == '\r' && pos < limit && buf.get(pos) == '\n')
+                pos++;
+            break;
+        }
+
+        int n = cells.size();
+        while (n > 0 && cells.get(n - 1) == null)
+            n--;
+        return cells.subList(0, n).toArray(new String[0]);
+    }
+
+    /**
+     * Read one field, leaving pos on the delimiter or line break that ends it.
+     */
+    private String nextField() {
+        int len = 0;
+        if (pos < limit && buf.get(pos) == '"') {
+            pos++;
+            while (pos < limit) {
+                byte b = buf.get(pos++);
+                if (b == '"') {
+                    if (pos < limit && buf.get(pos) == '"') {
+                        pos++;
+                    } else {
+                        break;
+                    }
+                }
+                len = append(len, b);
+            }
+            // Anything between the closing quote and the delimiter is kept as-is
+            while (pos < limit && !isFieldEnd(buf.get(pos))) {
+                len = append(len, buf.get(pos++));
+            }
+        } else {
+            int start = pos;
+            while (pos < limit && !isFieldEnd(buf.get(pos)))
+                pos++;
+            len = pos - start;
+            if (len > 0) {
+                ensureScratch(len);
+                buf.get(start, scratch, 0, len);
+            }
+        }
+        if (len == 0)
+            return null;
+        // Repeated short values ("P", "00:00", ...) are not decoded again
+        String pooled = pool.intern(scratch, 0, len);
+        return pooled != null ? pooled : new String(scratch, 0, len, StandardCharsets.UTF_8);
+    }
+
+    private boolean isFieldEnd(byte b) {
+        return b == delimiter || b == '\n' || b == '\r';
+    }
+
+    private int append(int len, byte b) {
+        ensureScratch(len + 1);
+        scratch[len] = b;
+        return len + 1;
+    }
+
+    private void ensureScratch(int size) {
+        if (size > scratch.length) {
+            byte[] grown = new byte[Math.max(size, scratch.length * 2)];
+            System.arraycopy(scratch, 0, grown, 0, scratch.length);
+            scratch = grown;
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package org.bioparse.cleaning;
+
+import org.bioparse.cleaning.AttendanceMerger.EmployeeData;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Row-driven state machine that turns the "Employee:" ... "Shift" runs of a
+ * Monthly Status Report into EmployeeData blocks.
+ *
+ * Readers push rows in sheet order as plain strings indexed by physical
+ * column, so the same parser serves every input format. Only the rows of the
+ * block currently being built are kept; each finished block is handed to the
+ * listener straight away.
+ */
+public class EmployeeBlockParser {
+
+    private Consumer<EmployeeData> listener = emp -> { };
+
+    // Month/year, detected from the report header as rows stream past
+    private int monthDays = 31;
+    private int year = Calendar.getInstance().get(Calendar.YEAR);
+    private int month = 1;
+    private boolean monthDetected;
+
+    // Columns labelled in the last "Days" header row seen; seeds per-block detection.
+    // Kept across sheets because continuation sheets repeat the layout without the header.
+    private boolean[] dayColumns = new boolean[0];
+    private final List<String[]> block = new ArrayList<>();
+    // Canonical instances of repeated cell values
+    private final StringPool pool = new StringPool();
+
+    // Optional progress reporting; rows are handed over every tracker.interval rows
+    private ProgressTracker tracker;
+    private int pendingRows;
+
+    public void setListener(Consumer<EmployeeData> listener) {
+        this.listener = listener;
+    }
+
+    void setProgress(ProgressTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    /**
+     * Number of sheets the reader is going to feed, for progress reporting.
+     */
+    public void setTotalSheets(int totalSheets) {
+        if (tracker != null) {
+            tracker.setTotalSheets(totalSheets);
+        }
+    }
+
+    public int getMonthDays() {
+        return monthDays;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public int getMonth() {
+        return month;
+    }
+
+    /**
+     * Use a month/year that is already known instead of detecting it from the rows.
+     */
+    public void presetMonth(int year, int month) {
+        this.year = year;
+        this.month = month;
+        this.monthDays = YearMonth.of(year, month).lengthOfMonth();
+        this.monthDetected = true;
+    }
+
+    /**
+     * Seed the day columns for a parser that starts mid-workbook, when the
+     * "Days" header row was on an earlier sheet.
+     */
+    public void setDayColumns(boolean[] dayColumns) {
+        this.dayColumns = dayColumns;
+    }
+
+    /**
+     * Begin a new sheet. Spacer columns are detected per employee block from
+     * the "Days" header row plus the block's own rows, so a mid-month joiner's
+     * empty leading days are not mistaken for spacers.
+     */
+    public void startSheet() {
+        block.clear();
+    }
+
+    /**
+     * Feed one row. cells[i] is the text of physical column i, or null when
+     * the cell is missing.
+     */
+    public void row(String[] cells) {
+        if (tracker != null && ++pendingRows >= tracker.interval) {
+            tracker.addRows(pendingRows);
+            pendingRows = 0;
+        }
+
+        if (!monthDetected) {
+            detectMonth(cells);
+        }
+
+        String firstVal = cells.length > 0 && cells[0] != null ? cells[0].trim() : "";
+        if (firstVal.isEmpty() || firstVal.startsWith("Department:")
+                || firstVal.startsWith("Monthly Status Report") || TextClassifier.isPeriodRow(firstVal))
+            return;
+
+        if (firstVal.equalsIgnoreCase("Days")) {
+            dayColumns = dayColumnsOf(cells);
+            return;
+        }
+
+        // Start employee block
+        if (firstVal.equalsIgnoreCase("Employee:")) {
+            flushBlock();
+            block.add(cells);
+            return;
+        }
+
+        if (block.isEmpty() || !TextClassifier.isDataLabel(firstVal))
+            return;
+
+        block.add(cells);
+
+        // Finalize employee when we have Shift data
+        if (firstVal.equalsIgnoreCase("Shift")) {
+            EmployeeData emp = buildEmployee();
+            if (AttendanceMerger.hasEssentialData(emp)) {
+                emit(emp);
+                block.clear();
+            }
+        }
+    }
+
+    /**
+     * Finish the current sheet, emitting any employee still being built.
+     */
+    public void endSheet() {
+        flushBlock();
+        if (tracker != null) {
+            tracker.sheetDone(pendingRows);
+            pendingRows = 0;
+        }
+    }
+
+    private void flushBlock() {
+        if (block.isEmpty())
+            return;
+        EmployeeData emp = buildEmployee();
+        block.clear();
+        if (AttendanceMerger.hasEssentialData(emp)) {
+            emit(emp);
+        }
+    }
+
+    private void emit(EmployeeData emp) {
+        listener.accept(emp);
+        if (tracker != null) {
+            tracker.employeeDone();
+        }
+    }
+
+    private void detectMonth(String[] cells) {
+        for (String cell : cells) {
+            if (cell == null)
+                continue;
+            int[] ym = TextClassifier.parseMonthHeader(cell.trim());
+            if (ym != null) {
+                year = ym[0];
+                month = ym[1];
+                monthDays = YearMonth.of(year, month).lengthOfMonth();
+                monthDetected = true;
+                return;
+            }
+        }
+    }
+
+    private EmployeeData buildEmployee() {
+        int[] columns = columnMap(block, dayColumns);
+
+        // Search for employee info in the first logical columns after the label
+        String[] empRow = block.get(0);
+        String empRaw = null;
+        for (int col = 1; col <= 10; col++) {
+            String cellVal = cellAt(empRow, columns, col);
+            if (!cellVal.isEmpty() && !TextClassifier.isSummaryText(cellVal)) {
+                // Look for pattern: number : name or just use first non-empty
+                boolean idName = TextClassifier.isIdName(cellVal);
+                if (idName || empRaw == null) {
+                    empRaw = cellVal;
+                    if (idName) {
+                        break; // Found the ID:Name pattern
+                    }
+                }
+            }
+        }
+
+        EmployeeData emp = new EmployeeData();
+        if (empRaw != null) {
+            if (empRaw.contains(":")) {
+                String[] parts = empRaw.split(":", 2);
+                emp.empId = parts[0].trim();
+                emp.empName = (parts.length > 1 ? parts[1].trim() : emp.empId);
+            } else {
+                emp.empId = empRaw;
+                emp.empName = empRaw;
+            }
+            System.out.println("\n✓ Found employee: " + emp.empId + " : " + emp.empName);
+        } else {
+            System.out.println("\n⚠️  Could not find employee info in row");
+        }
+
+        for (int i = 1; i < block.size(); i++) {
+            String[] row = block.get(i);
+            String label = row[0].trim();
+
+            // Read exactly monthDays values from consecutive logical columns
+            List<String> values = new ArrayList<>(monthDays);
+            for (int col = 1; col <= monthDays; col++) {
+                String cellValue = cellAt(row, columns, col);
+                // Skip summary text
+                if (TextClassifier.isSummaryText(cellValue)) {
+                    cellValue = "";
+                }
+                values.add(cellValue);
+            }
+
+            emp.dailyData.put(label, values);
+
+            long nonEmptyCount = values.stream().filter(v -> !v.isEmpty()).count();
+            System.out.println("  " + label + ": " + nonEmptyCount + " non-empty values out of " + monthDays + " days");
+        }
+        return emp;
+    }
+
+    /**
+     * Flags the columns that carry a day label in a "Days" header row.
+     */
+    static boolean[] dayColumnsOf(String[] cells) {
+        boolean[] flags = new boolean[cells.length];
+        for (int col = 1; col < cells.length; col++) {
+            flags[col] = cells[col] != null && !cells[col].trim().isEmpty();
+        }
+        return flags;
+    }
+
+    private String cellAt(String[] row, int[] columns, int logicalCol) {
+        if (logicalCol >= columns.length)
+            return "";
+        int physical = columns[logicalCol];
+        if (physical >= row.length || row[physical] == null)
+            return "";
+        // Trimmed and pooled in one step: repeated values cost no new String
+        String raw = row[physical];
+        int start = 0, end = raw.length();
+        while (start < end && raw.charAt(start) <= ' ')
+            start++;
+        while (end > start && raw.charAt(end - 1) <= ' ')
+            end--;
+        return pool.intern(raw, start, end);
+    }
+
+    /**
+     * Print how many day values were read and how many of them shared an
+     * already pooled String.
+     */
+    void printPoolStats() {
+        long lookups = pool.lookups();
+        System.out.println(String.format("✓ Day values: %,d read, %.1f%% shared from %d pooled strings",
+                lookups, lookups == 0 ? 0.0 : 100.0 * pool.hits() / lookups, pool.size()));
+    }
+
+    /**
+     * Build the logical -> physical column index for a set of rows. Column 0
+     * (labels) is always kept, as is every column flagged in keep; any other
+     * column with no usable value in any of the rows is a spacer and is skipped.
+     */
+    static int[] columnMap(List<String[]> rows, boolean[] keep) {
+        int maxCol = keep.length;
+        for (String[] row : rows) {
+            maxCol = Math.max(maxCol, row.length);
+        }
+
+        boolean[] hasData = Arrays.copyOf(keep, maxCol);
+        for (String[] row : rows) {
+            for (int col = 1; col < row.length; col++) {
+                if (hasData[col] || row[col] == null)
+                    continue;
+                String cellValue = row[col].trim();
+                if (!cellValue.isEmpty() && !TextClassifier.isSummaryText(cellValue)) {
+                    hasData[col] = true;
+                }
+            }
+        }
+
+        int[] columns = new int[Math.max(1, maxCol)];
+        int logical = 1;
+        for (int col = 1; col < maxCol; col++) {
+            if (hasData[col]) {
+                columns[logical++] = col;
+            }
+        }
+        return Arrays.copyOf(columns, logical);
+    }
+}
@@ -0,0 +1,189 @@
+package org.bioparse.cleaning;
+
+import org.bioparse.cleaning.AttendanceMerger.EmployeeData;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Employee list with a heap budget. Employees are kept in memory until their
+ * estimated size passes the budget; from then on every employee block lives
+ * in a temp file and only its offset stays on the heap.
+ *
+ * Reads decode the block again on each call, so downstream code that walks
+ * the list sees one employee at a time. Employees read back are copies:
+ * changing them does not change the list.
+ */
+public class EmployeeSpillList extends AbstractList<EmployeeData> implements Closeable {
+
+    // Rough heap cost of a String and of a list/map entry holding it
+    private static final int STRING_OVERHEAD = 56;
+    private static final int ENTRY_OVERHEAD = 48;
+
+    private final long budgetBytes;
+    private final List<EmployeeData> buffer = new ArrayList<>();
+    private long bufferedBytes;
+
+    private File file;
+    private RandomAccessFile data;
+    private long[] offsets = new long[256];
+    private long end;
+    private int size;
+
+    public EmployeeSpillList(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /** True once the list has moved to disk. */
+    public synchronized boolean isSpilled() {
+        return data != null;
+    }
+
+    @Override
+    public synchronized boolean add(EmployeeData emp) {
+        try {
+            if (data == null) {
+                buffer.add(emp);
+                bufferedBytes += estimateBytes(emp);
+                if (bufferedBytes > budgetBytes) {
+                    spill();
+                }
+            } else {
+                writeAt(size, emp);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not spill employee data to " + file, ex);
+        }
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public synchronized EmployeeData get(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        if (data == null)
+            return buffer.get(index);
+
+        try {
+            long start = offsets[index];
+            long stop = index + 1 < size ? offsets[index + 1] : end;
+            byte[] block = new byte[(int) (stop - start)];
+            data.seek(start);
+            data.readFully(block);
+            return decode(block);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not read spilled employee data from " + file, ex);
+        }
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    /** Delete the temp file. The list must not be used afterwards. */
+    @Override
+    public synchronized void close() throws IOException {
+        if (data != null) {
+            data.close();
+            file.delete();
+        }
+    }
+
+    private void spill() throws IOException {
+        file = File.createTempFile("bioparse-employees-", ".spill");
+        file.deleteOnExit();
+        data = new RandomAccessFile(file, "rw");
+        System.out.println("✓ Employee data passed the " + (budgetBytes >> 20) + " MB heap budget, spilling to " + file);
+
+        // size is bumped by add after this returns
+        int spilled = 0;
+        for (EmployeeData emp : buffer) {
+            writeAt(spilled++, emp);
+        }
+        buffer.clear();
+        bufferedBytes = 0;
+    }
+
+    private void writeAt(int index, EmployeeData emp) throws IOException {
+        if (index == offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        byte[] block = encode(emp);
+        offsets[index] = end;
+        data.seek(end);
+        data.write(block);
+        end += block.length;
+    }
+
+    private static long estimateBytes(EmployeeData emp) {
+        long bytes = 2 * (STRING_OVERHEAD + ENTRY_OVERHEAD);
+        for (Map.Entry<String, List<String>> entry : emp.dailyData.entrySet()) {
+            bytes += ENTRY_OVERHEAD + STRING_OVERHEAD + entry.getKey().length();
+            for (String value : entry.getValue()) {
+                bytes += value == null ? 8 : STRING_OVERHEAD + value.length();
+            }
+        }
+        return bytes;
+    }
+
+    private static byte[] encode(EmployeeData emp) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeString(out, emp.empId);
+        writeString(out, emp.empName);
+        out.writeShort(emp.dailyData.size());
+        for (Map.Entry<String, List<String>> entry : emp.dailyData.entrySet()) {
+            writeString(out, entry.getKey());
+            out.writeShort(entry.getValue().size());
+            for (String value : entry.getValue()) {
+                writeString(out, value);
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static EmployeeData decode(byte[] block) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(block));
+        EmployeeData emp = new EmployeeData();
+        emp.empId = readString(in);
+        emp.empName = readString(in);
+        int labels = in.readUnsignedShort();
+        for (int l = 0; l < labels; l++) {
+            String label = readString(in);
+            int n = in.readUnsignedShort();
+            List<String> values = new ArrayList<>(n);
+            for (int v = 0; v < n; v++) {
+                values.add(readString(in));
+            }
+            emp.dailyData.put(label, values);
+        }
+        return emp;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) {
+            out.writeUTF(s);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,206 @@
+package org.bioparse.cleaning;
+
+import org.bioparse.cleaning.AttendanceMerger.EmployeeData;
+import org.bioparse.cleaning.AttendanceMerger.MasterWriter;
+import org.bioparse.cleaning.AttendanceMerger.MergeOptions;
+import org.bioparse.cleaning.AttendanceMerger.MergeResult;
+import org.bioparse.cleaning.AttendanceReportGenerator.Metrics;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Merge and monthly summary in one pass: parse → metrics → Master writer →
+ * report/CSV writer, each on its own thread with bounded queues in between.
+ *
+ * An employee block moves on to the metrics stage as soon as it is parsed,
+ * so the stages overlap and the wall time approaches that of the slowest
+ * stage rather than the sum of all of them.
+ */
+public class MergePipeline {
+
+    public static class Result {
+        public MergeResult mergeResult;
+        /** Monthly summary rows, in SUMMARY_HEADERS order, one per employee. */
+        public List<String[]> reportRows;
+    }
+
+    /** Employee blocks buffered between two stages. */
+    public static final int QUEUE_CAPACITY = 64;
+
+    // Sent down the pipeline after the last employee
+    private static final Item END = new Item(null, 0, 0, 0);
+
+    private static class Item {
+        final EmployeeData emp;
+        final int monthDays, year, month;
+        Metrics metrics;
+
+        Item(EmployeeData emp, int monthDays, int year, int month) {
+            this.emp = emp;
+            this.monthDays = monthDays;
+            this.year = year;
+            this.month = month;
+        }
+    }
+
+    private final BlockingQueue<Item> parsed = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<Item> measured = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<Item> written = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    // First failure of any stage; later stages keep draining so nobody blocks
+    private volatile Exception failure;
+
+    private MergePipeline() {
+    }
+
+    /**
+     * Merge inputFilePath into mergedFilePath and write the monthly summary to
+     * reportCsvPath. Metrics use reportYear/reportMonth, as the GUI's report does.
+     * Close the returned mergeResult when done with it.
+     */
+    public static Result run(String inputFilePath, String mergedFilePath, String reportCsvPath,
+            List<Integer> holidays, int reportYear, int reportMonth, MergeOptions options) throws Exception {
+        return new MergePipeline().execute(inputFilePath, mergedFilePath, reportCsvPath, holidays, reportYear,
+                reportMonth, options);
+    }
+
+    private Result execute(String inputFilePath, String mergedFilePath, String reportCsvPath, List<Integer> holidays,
+            int reportYear, int reportMonth, MergeOptions options) throws Exception {
+        AttendanceReportGenerator generator = new AttendanceReportGenerator();
+        Result result = new Result();
+        result.reportRows = new ArrayList<>();
+
+        MonthCalendar calendar = MonthCalendar.of(reportYear, reportMonth, holidays);
+
+        // Both outputs are opened before any stage starts, so a path that cannot
+        // be written fails here without leaving stage threads waiting for input
+        MasterWriter master = new MasterWriter(mergedFilePath, options);
+        BufferedWriter csv = null;
+        try {
+            csv = new BufferedWriter(new FileWriter(reportCsvPath));
+            csv.write(AttendanceReportGenerator.CSV_HEADER);
+            csv.newLine();
+            BufferedWriter report = csv;
+
+            Thread metricsStage = stage("merge-metrics", parsed, measured, item -> {
+                item.metrics = generator.computeMetrics(item.emp, item.monthDays, calendar);
+            });
+            Thread masterStage = stage("merge-master", measured, written, item -> {
+                master.write(item.emp, item.monthDays, holidays, item.year, item.month);
+            });
+            Thread reportStage = stage("merge-report", written, null, item -> {
+                report.write(AttendanceReportGenerator.csvLine(item.emp, item.metrics));
+                report.newLine();
+                result.reportRows.add(AttendanceReportGenerator.summaryRow(item.emp, item.metrics));
+            });
+
+            try {
+                result.mergeResult = AttendanceMerger.parse(inputFilePath, options,
+                        (emp, days, year, month) -> submit(new Item(emp, days, year, month)));
+            } catch (CancellationException ex) {
+                // Stopped because a stage failed: report that failure instead
+                if (failure == null)
+                    throw ex;
+            } finally {
+                forward(parsed, END);
+                metricsStage.join();
+                masterStage.join();
+                reportStage.join();
+            }
+
+            if (failure != null) {
+                // Nobody gets the employees: drop their spill file now
+                if (result.mergeResult != null)
+                    result.mergeResult.close();
+                throw failure;
+            }
+
+            master.finish();
+        } finally {
+            if (csv != null)
+                csv.close();
+            master.close();
+        }
+        if (options.archiveDir != null) {
+            AttendanceArchive.write(new File(options.archiveDir), result.mergeResult);
+        }
+
+        System.out.println("\n========================================");
+        System.out.println("✓ Master file created at: " + mergedFilePath);
+        System.out.println("✓ Monthly summary written to: " + reportCsvPath);
+        System.out.println("✓ Total employees processed: " + result.mergeResult.allEmployees.size());
+        System.out.println("========================================");
+        return result;
+    }
+
+    private interface Step {
+        void apply(Item item) throws Exception;
+    }
+
+    /**
+     * Start a thread that applies step to each item of in and passes it on to
+     * out (if any), until END arrives.
+     */
+    private Thread stage(String name, BlockingQueue<Item> in, BlockingQueue<Item> out, Step step) {
+        Thread thread = new Thread(() -> {
+            while (true) {
+                Item item = take(in);
+                if (item == END)
+                    break;
+                if (failure != null)
+                    continue;
+                try {
+                    step.apply(item);
+                } catch (Throwable ex) {
+                    failure = ex instanceof Exception ? (Exception) ex : new RuntimeException(ex);
+                    continue;
+                }
+                if (out != null) {
+                    forward(out, item);
+                }
+            }
+            if (out != null) {
+                forward(out, END);
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Hand a parsed employee to the first stage.
+     */
+    private void submit(Item item) {
+        if (failure != null) {
+            // A stage failed: stop the parser instead of feeding it more work
+            throw new CancellationException("Merge pipeline failed: " + failure.getMessage());
+        }
+        forward(parsed, item);
+    }
+
+    private static void forward(BlockingQueue<Item> queue, Item item) {
+        try {
+            queue.put(item);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Merge pipeline interrupted");
+        }
+    }
+
+    private static Item take(BlockingQueue<Item> queue) {
+        try {
+            return queue.take();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return END;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.bioparse.cleaning;
+
+/**
+ * Receives progress from a running merge and can ask it to stop.
+ *
+ * update is called every {@link AttendanceMerger.MergeOptions#progressInterval}
+ * rows and after each sheet. In the parallel mode it may be called from
+ * several worker threads at once.
+ */
+public interface MergeProgress {
+
+    void update(int sheetsDone, int totalSheets, long rowsRead, int employees);
+
+    /**
+     * Checked after each update; returning true aborts the merge with a
+     * CancellationException.
+     */
+    default boolean isCancelled() {
+        return false;
+    }
+}
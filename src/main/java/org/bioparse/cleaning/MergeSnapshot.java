@@ -0,0 +1,74 @@
+package org.bioparse.cleaning;
+
+import org.bioparse.cleaning.AttendanceMerger.EmployeeData;
+import org.bioparse.cleaning.AttendanceMerger.MergeResult;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A finished merge as an immutable, versioned value, for handing from the
+ * worker that produced it to the panels and workers that read it.
+ *
+ * {@link #publish} freezes the result before it is shared: the employee
+ * list becomes unmodifiable, employees whose dailyData could still change
+ * or that spilled to disk are copied into a read-only {@link AttendanceStore},
+ * and the source result is closed, so no snapshot holds a spill file open.
+ * The lookups and indexes are built on first use. The snapshot is set on an
+ * AtomicReference, so any thread that reads the reference sees it complete
+ * without locking. Readers remember the {@link #version} they last rendered
+ * and skip the work when it has not changed.
+ */
+public final class MergeSnapshot {
+
+    /** Before the first merge: no result, version 0. */
+    public static final MergeSnapshot EMPTY = new MergeSnapshot(0, null);
+
+    public final long version;
+    /** The frozen result, or null for {@link #EMPTY}. Its lists must not be modified. */
+    public final MergeResult result;
+
+    private MergeSnapshot(long version, MergeResult result) {
+        this.version = version;
+        this.result = result;
+    }
+
+    public boolean isEmpty() {
+        return result == null;
+    }
+
+    /**
+     * Freeze a result and make it the current snapshot of ref, one version
+     * after the snapshot it replaces. result is closed once copied, and must
+     * not be used afterwards.
+     */
+    public static MergeSnapshot publish(AtomicReference<MergeSnapshot> ref, MergeResult result)
+            throws IOException {
+        MergeResult frozen = freeze(result);
+        result.close();
+        MergeSnapshot previous, next;
+        do {
+            previous = ref.get();
+            next = new MergeSnapshot(previous.version + 1, frozen);
+        } while (!ref.compareAndSet(previous, next));
+        return next;
+    }
+
+    static MergeResult freeze(MergeResult result) {
+        List<EmployeeData> employees = result.allEmployees;
+        if (!isReadOnly(employees)) {
+            AttendanceStore store = new AttendanceStore();
+            store.addAll(employees);
+            employees = store;
+        }
+        return new MergeResult(Collections.unmodifiableList(employees), result.monthDays, result.year,
+                result.month);
+    }
+
+    // Store rows are read-only views
+    private static boolean isReadOnly(List<EmployeeData> employees) {
+        return employees instanceof AttendanceStore;
+    }
+}
@@ -0,0 +1,119 @@
+package org.bioparse.cleaning;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The days of one report month, classified once: weekends (Saturday and
+ * Sunday), holidays (listed holidays that are not weekends) and working
+ * days, as bit masks over the day numbers 1..31. The Master writer and the
+ * report metrics take their day kinds, Master header labels and cell style
+ * slots from here instead of building dates per cell.
+ *
+ * Holidays outside the month are ignored. {@link #of} hands out the same
+ * instance while the month and holidays stay the same.
+ */
+public final class MonthCalendar {
+
+    /** Style slots of a day's cells in the Master sheet. */
+    public static final int STYLE_PLAIN = 0, STYLE_WEEKEND = 1, STYLE_HOLIDAY = 2;
+
+    public final int year;
+    public final int month;
+    /** Days in the month. */
+    public final int length;
+
+    // Bit d is day d
+    private final long weekend;
+    private final long holiday;
+    private final long working;
+    private final List<Integer> holidays;
+    private final String[] labels;
+
+    private static volatile MonthCalendar last;
+
+    private MonthCalendar(int year, int month, List<Integer> holidays) {
+        this.year = year;
+        this.month = month;
+        this.length = YearMonth.of(year, month).lengthOfMonth();
+        this.holidays = holidays != null ? new ArrayList<>(holidays) : new ArrayList<>();
+
+        long weekendDays = 0, holidayDays = 0;
+        labels = new String[length + 1];
+        for (int day = 1; day <= length; day++) {
+            DayOfWeek dow = LocalDate.of(year, month, day).getDayOfWeek();
+            String label = day + " " + dow.getDisplayName(TextStyle.SHORT, Locale.ENGLISH);
+            if (dow == DayOfWeek.SATURDAY || dow == DayOfWeek.SUNDAY) {
+                weekendDays |= 1L << day;
+                label += " (WE)";
+            } else if (this.holidays.contains(day)) {
+                holidayDays |= 1L << day;
+                label += " (H)";
+            }
+            labels[day] = label;
+        }
+        long allDays = ((1L << length) - 1) << 1;
+        this.weekend = weekendDays;
+        this.holiday = holidayDays;
+        this.working = allDays & ~weekendDays & ~holidayDays;
+    }
+
+    /** The calendar of a month with the given holiday day numbers. */
+    public static MonthCalendar of(int year, int month, List<Integer> holidays) {
+        MonthCalendar cal = last;
+        if (cal != null && cal.year == year && cal.month == month
+                && cal.holidays.equals(holidays != null ? holidays : List.of())) {
+            return cal;
+        }
+        cal = new MonthCalendar(year, month, holidays);
+        last = cal;
+        return cal;
+    }
+
+    public boolean isWeekend(int day) {
+        return has(weekend, day);
+    }
+
+    /** A listed holiday that does not fall on a weekend. */
+    public boolean isHoliday(int day) {
+        return has(holiday, day);
+    }
+
+    /** Neither a weekend nor a holiday. Days outside the month are not working days. */
+    public boolean isWorkingDay(int day) {
+        return has(working, day);
+    }
+
+    /** Weekend days among days 1..days. */
+    public int weekendDays(int days) {
+        return Long.bitCount(weekend & upTo(days));
+    }
+
+    /** Working days among days 1..days. */
+    public int workingDays(int days) {
+        return Long.bitCount(working & upTo(days));
+    }
+
+    /** Master sheet header of a day: "6 Sat (WE)", "15 Fri (H)", "16 Mon". */
+    public String label(int day) {
+        return labels[day];
+    }
+
+    /** {@link #STYLE_WEEKEND}, {@link #STYLE_HOLIDAY} or {@link #STYLE_PLAIN}. */
+    public int styleIndex(int day) {
+        return isWeekend(day) ? STYLE_WEEKEND : isHoliday(day) ? STYLE_HOLIDAY : STYLE_PLAIN;
+    }
+
+    private static boolean has(long days, int day) {
+        return day >= 1 && day <= 31 && (days & (1L << day)) != 0;
+    }
+
+    private static long upTo(int days) {
+        return days >= 63 ? -1L : ((1L << (days + 1)) - 1);
+    }
+}
@@ -0,0 +1,78 @@
+package org.bioparse.cleaning;
+
+import org.bioparse.cleaning.AttendanceMerger.EmployeeData;
+import org.bioparse.cleaning.AttendanceMerger.MasterWriter;
+import org.bioparse.cleaning.AttendanceMerger.MergeOptions;
+import org.bioparse.cleaning.AttendanceMerger.MergeResult;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Times the three ways of writing the Master sheet side by side: POI XSSF,
+ * POI SXSSF ({@link MergeOptions#streamingOutput}) and {@link XlsxWriter}
+ * ({@link MergeOptions#directOutput}). The input is parsed once; each round
+ * writes every employee of it to a temp file with each writer.
+ *
+ * Usage: OutputBenchmark &lt;input file or batch directory&gt; [rounds] [holiday...]
+ */
+public class OutputBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println("Usage: OutputBenchmark <input file or batch directory> [rounds] [holiday...]");
+            return;
+        }
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        List<Integer> holidays = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            holidays.add(Integer.parseInt(args[i]));
+        }
+
+        MergeOptions parseOptions = new MergeOptions();
+        parseOptions.streaming = true;
+        MergeResult result = AttendanceMerger.parse(args[0], parseOptions, (emp, days, year, month) -> {
+        });
+
+        String[] names = { "XSSF", "SXSSF", "Direct" };
+        long[] bestMs = new long[names.length];
+        long[] bytes = new long[names.length];
+        Arrays.fill(bestMs, Long.MAX_VALUE);
+
+        File out = File.createTempFile("master-benchmark", ".xlsx");
+        try {
+            // The first round also warms up the JIT for all three
+            for (int round = 0; round <= rounds; round++) {
+                for (int w = 0; w < names.length; w++) {
+                    MergeOptions options = new MergeOptions();
+                    options.streamingOutput = w == 1;
+                    options.directOutput = w == 2;
+                    long started = System.nanoTime();
+                    try (MasterWriter master = new MasterWriter(out.getPath(), options)) {
+                        for (EmployeeData emp : result.allEmployees) {
+                            master.write(emp, result.monthDays, holidays, result.year, result.month);
+                        }
+                        master.finish();
+                    }
+                    long ms = (System.nanoTime() - started) / 1_000_000;
+                    if (round > 0) {
+                        bestMs[w] = Math.min(bestMs[w], ms);
+                        bytes[w] = out.length();
+                    }
+                }
+            }
+        } finally {
+            out.delete();
+        }
+
+        System.out.println("\n========================================");
+        System.out.printf("Master sheet of %d employees, best of %d rounds%n", result.allEmployees.size(), rounds);
+        for (int w = 0; w < names.length; w++) {
+            System.out.printf("%-8s %,8d ms %,12d bytes  %5.1fx%n", names[w], bestMs[w], bytes[w],
+                    (double) bestMs[0] / Math.max(1, bestMs[w]));
+        }
+        System.out.println("========================================");
+    }
+}
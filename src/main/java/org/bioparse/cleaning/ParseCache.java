@@ -0,0 +1,306 @@
+package org.bioparse.cleaning;
+
+import org.bioparse.cleaning.AttendanceMerger.EmployeeData;
+import org.bioparse.cleaning.AttendanceMerger.MergeOptions;
+import org.bioparse.cleaning.AttendanceMerger.MergeResult;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps parsed MergeResults on disk, keyed by the content of the input file,
+ * so re-running a merge on an unchanged export (e.g. after editing holidays)
+ * skips the parse.
+ *
+ * The key is a SHA-256 of the input content together with the options that
+ * change what the parse produces and the snapshot format version; every
+ * snapshot repeats its key, which is checked on load. The directory is kept
+ * under {@link #DEFAULT_MAX_BYTES} and {@link #DEFAULT_MAX_AGE_DAYS}: older
+ * and then least recently used snapshots are deleted after each store.
+ *
+ * Snapshots are a small binary format: a string dictionary followed by
+ * employees whose ids, names, labels and values are dictionary indices.
+ */
+public class ParseCache {
+
+    private static final int MAGIC = 0x42504d52; // "BPMR"
+    // Bump when the parser output or the snapshot layout changes
+    private static final int FORMAT_VERSION = 2;
+    private static final String SUFFIX = ".bin";
+
+    public static final long DEFAULT_MAX_BYTES = 256L << 20;
+    public static final int DEFAULT_MAX_AGE_DAYS = 30;
+
+    // Content digests already computed this session, so an unchanged file
+    // (same size and mtime) is not hashed again
+    private static final Map<String, KnownFile> knownFiles = new ConcurrentHashMap<>();
+
+    private static class KnownFile {
+        final long size;
+        final long mtime;
+        final byte[] digest;
+
+        KnownFile(long size, long mtime, byte[] digest) {
+            this.size = size;
+            this.mtime = mtime;
+            this.digest = digest;
+        }
+    }
+
+    private final File dir;
+    private final long maxBytes;
+    private final long maxAgeMillis;
+
+    public ParseCache(File dir) {
+        this(dir, DEFAULT_MAX_BYTES, DEFAULT_MAX_AGE_DAYS);
+    }
+
+    public ParseCache(File dir, long maxBytes, int maxAgeDays) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = TimeUnit.DAYS.toMillis(maxAgeDays);
+    }
+
+    /**
+     * Cache key of an input file parsed with the given options: a SHA-256 of
+     * its content, the parse mode the options select and the snapshot format.
+     */
+    public static String fingerprint(File input, MergeOptions options) throws IOException {
+        String path = input.getCanonicalPath();
+        long size = input.length();
+        long mtime = input.lastModified();
+
+        KnownFile known = knownFiles.get(path);
+        if (known == null || known.size != size || known.mtime != mtime) {
+            known = new KnownFile(size, mtime, contentDigest(input));
+            knownFiles.put(path, known);
+        }
+
+        MessageDigest key = sha256();
+        key.update(known.digest);
+        // Options that change the parsed employees, not just how fast they are parsed
+        String mode = "v" + FORMAT_VERSION + ";size=" + size + ";punchLog=" + options.punchLog + ";streaming="
+                + (options.streaming || options.heapBudgetMB > 0);
+        key.update(mode.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(key.digest());
+    }
+
+    private static byte[] contentDigest(File input) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+        try (FileChannel ch = FileChannel.open(input.toPath(), StandardOpenOption.READ)) {
+            while (ch.read(buffer) > 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            // Every Java platform is required to provide SHA-256
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * The cached result for a key, or null if there is none or it cannot be read.
+     */
+    public MergeResult load(String key) {
+        File file = snapshotFile(key);
+        if (!file.isFile())
+            return null;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !in.readUTF().equals(key))
+                return null;
+
+            int monthDays = in.readInt();
+            int year = in.readInt();
+            int month = in.readInt();
+
+            String[] dict = new String[readVarInt(in) + 1];
+            for (int i = 1; i < dict.length; i++) {
+                dict[i] = in.readUTF();
+            }
+
+            int count = readVarInt(in);
+            List<EmployeeData> employees = new ArrayList<>(count);
+            for (int e = 0; e < count; e++) {
+                EmployeeData emp = new EmployeeData();
+                emp.empId = dict[readVarInt(in)];
+                emp.empName = dict[readVarInt(in)];
+                int labels = readVarInt(in);
+                for (int l = 0; l < labels; l++) {
+                    String label = dict[readVarInt(in)];
+                    int n = readVarInt(in);
+                    List<String> values = new ArrayList<>(n);
+                    for (int v = 0; v < n; v++) {
+                        values.add(dict[readVarInt(in)]);
+                    }
+                    emp.dailyData.put(label, values);
+                }
+                employees.add(emp);
+            }
+            // Most recently used snapshots are pruned last
+            file.setLastModified(System.currentTimeMillis());
+            return new MergeResult(employees, monthDays, year, month);
+        } catch (IOException | RuntimeException ex) {
+            System.out.println("⚠️  Ignoring unreadable cache snapshot " + file + ": " + ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Store a result under a key. Failures are reported and otherwise ignored.
+     */
+    public void store(String key, MergeResult result) {
+        // Index 0 stands for null
+        Map<String, Integer> dict = new LinkedHashMap<>();
+        for (EmployeeData emp : result.allEmployees) {
+            intern(dict, emp.empId);
+            intern(dict, emp.empName);
+            for (Map.Entry<String, List<String>> entry : emp.dailyData.entrySet()) {
+                intern(dict, entry.getKey());
+                for (String value : entry.getValue()) {
+                    intern(dict, value);
+                }
+            }
+        }
+
+        File file = snapshotFile(key);
+        File tmp = new File(dir, file.getName() + ".tmp");
+        try {
+            Files.createDirectories(dir.toPath());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(key);
+                out.writeInt(result.monthDays);
+                out.writeInt(result.year);
+                out.writeInt(result.month);
+
+                writeVarInt(out, dict.size());
+                for (String s : dict.keySet()) {
+                    out.writeUTF(s);
+                }
+
+                writeVarInt(out, result.allEmployees.size());
+                for (EmployeeData emp : result.allEmployees) {
+                    writeVarInt(out, index(dict, emp.empId));
+                    writeVarInt(out, index(dict, emp.empName));
+                    writeVarInt(out, emp.dailyData.size());
+                    for (Map.Entry<String, List<String>> entry : emp.dailyData.entrySet()) {
+                        writeVarInt(out, index(dict, entry.getKey()));
+                        writeVarInt(out, entry.getValue().size());
+                        for (String value : entry.getValue()) {
+                            writeVarInt(out, index(dict, value));
+                        }
+                    }
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("✓ Cached parsed input: " + file);
+        } catch (IOException ex) {
+            System.out.println("⚠️  Could not write cache snapshot " + file + ": " + ex.getMessage());
+            tmp.delete();
+        }
+        prune();
+    }
+
+    /**
+     * Delete snapshots (and leftover temp files) older than the age limit,
+     * then the least recently used ones until the directory fits the size
+     * limit.
+     */
+    void prune() {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(SUFFIX) || name.endsWith(SUFFIX + ".tmp"));
+        if (files == null)
+            return;
+        long now = System.currentTimeMillis();
+        List<File> kept = new ArrayList<>();
+        long total = 0;
+        int deleted = 0;
+        for (File file : files) {
+            if (now - file.lastModified() > maxAgeMillis) {
+                if (file.delete())
+                    deleted++;
+            } else if (file.getName().endsWith(SUFFIX)) {
+                kept.add(file);
+                total += file.length();
+            }
+        }
+        kept.sort(Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < kept.size() && total > maxBytes; i++) {
+            File file = kept.get(i);
+            long length = file.length();
+            if (file.delete()) {
+                total -= length;
+                deleted++;
+            }
+        }
+        if (deleted > 0) {
+            System.out.println("✓ Pruned " + deleted + " cache snapshots from " + dir);
+        }
+    }
+
+    private File snapshotFile(String key) {
+        return new File(dir, key + SUFFIX);
+    }
+
+    private static void intern(Map<String, Integer> dict, String s) {
+        if (s != null) {
+            dict.putIfAbsent(s, dict.size() + 1);
+        }
+    }
+
+    private static int index(Map<String, Integer> dict, String s) {
+        return s == null ? 0 : dict.get(s);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,52 @@
+package org.bioparse.cleaning;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Merge-wide counters behind a {@link MergeProgress}. Parsers count rows
+ * locally and hand them over in batches, so the hot path only pays for an
+ * int increment.
+ */
+class ProgressTracker {
+
+    private final MergeProgress progress;
+    final int interval;
+
+    private final AtomicInteger sheetsDone = new AtomicInteger();
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicInteger employees = new AtomicInteger();
+    private volatile int totalSheets;
+
+    ProgressTracker(MergeProgress progress, int interval) {
+        this.progress = progress;
+        this.interval = Math.max(1, interval);
+    }
+
+    void setTotalSheets(int totalSheets) {
+        this.totalSheets = totalSheets;
+    }
+
+    void addRows(int count) {
+        rows.addAndGet(count);
+        report();
+    }
+
+    void employeeDone() {
+        employees.incrementAndGet();
+    }
+
+    void sheetDone(int pendingRows) {
+        rows.addAndGet(pendingRows);
+        sheetsDone.incrementAndGet();
+        report();
+    }
+
+    private void report() {
+        progress.update(sheetsDone.get(), totalSheets, rows.get(), employees.get());
+        if (progress.isCancelled()) {
+            throw new CancellationException("Merge cancelled");
+        }
+    }
+}
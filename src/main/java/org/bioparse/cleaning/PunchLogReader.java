@@ -0,0 +1,436 @@
+package org.bioparse.cleaning;
+
+import org.bioparse.cleaning.AttendanceMerger.EmployeeData;
+import org.bioparse.cleaning.AttendanceMerger.MergeResult;
+
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds EmployeeData straight from a raw punch log (employee id, timestamp,
+ * terminal) instead of the pre-rendered Monthly Status Report.
+ *
+ * The log is tokenized on the calling thread and punches are routed by
+ * employee id to a fixed set of reducer threads, so every employee is owned
+ * by exactly one thread and no locking is needed. Each reducer keeps the
+ * first and last punch of every employee-day; the report month is the month
+ * with the most punches.
+ */
+public class PunchLogReader {
+
+    // Punches handed to a reducer at a time
+    private static final int BATCH_SIZE = 4096;
+    private static final Batch END = new Batch();
+
+    private static class Batch {
+        final String[] ids = new String[BATCH_SIZE];
+        final int[] days = new int[BATCH_SIZE];
+        final int[] minutes = new int[BATCH_SIZE];
+        final long[] seqs = new long[BATCH_SIZE];
+        int size;
+    }
+
+    /** Punches of one employee, by epoch day: {first minute, last minute, count}. */
+    private static class EmployeePunches {
+        final String empId;
+        final long firstSeq;
+        final Map<Integer, int[]> days = new HashMap<>();
+
+        EmployeePunches(String empId, long firstSeq) {
+            this.empId = empId;
+            this.firstSeq = firstSeq;
+        }
+    }
+
+    /** One hash partition: a queue of batches and the employees it owns. */
+    private static class Reducer extends Thread {
+        final BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(4);
+        final Map<String, EmployeePunches> employees = new HashMap<>();
+        // Punches per month, keyed by year * 12 + month - 1
+        final Map<Integer, Integer> monthCounts = new HashMap<>();
+        // Why the reducer stopped early, or null
+        volatile Throwable failure;
+
+        Reducer(int index) {
+            super("punch-reducer-" + index);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                Batch batch;
+                while ((batch = queue.take()) != END) {
+                    for (int i = 0; i < batch.size; i++) {
+                        add(batch.ids[i], batch.days[i], batch.minutes[i], batch.seqs[i]);
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable ex) {
+                failure = ex;
+            }
+        }
+
+        private void add(String empId, int epochDay, int minute, long seq) {
+            EmployeePunches emp = employees.get(empId);
+            if (emp == null) {
+                emp = new EmployeePunches(empId, seq);
+                employees.put(empId, emp);
+            }
+            int[] day = emp.days.get(epochDay);
+            if (day == null) {
+                emp.days.put(epochDay, new int[] { minute, minute, 1 });
+            } else {
+                day[0] = Math.min(day[0], minute);
+                day[1] = Math.max(day[1], minute);
+                day[2]++;
+            }
+
+            LocalDate date = LocalDate.ofEpochDay(epochDay);
+            monthCounts.merge(date.getYear() * 12 + date.getMonthValue() - 1, 1, Integer::sum);
+        }
+    }
+
+    private final Reducer[] reducers;
+    private final Batch[] pending;
+    private final ProgressTracker tracker;
+    private long seq;
+    private long skipped;
+    private int pendingRows;
+
+    // Last date seen, to skip the LocalDate conversion for runs of the same day
+    private int lastY, lastM, lastD, lastEpochDay;
+
+    private PunchLogReader(int partitions, ProgressTracker tracker) {
+        this.tracker = tracker;
+        reducers = new Reducer[partitions];
+        pending = new Batch[partitions];
+        for (int i = 0; i < partitions; i++) {
+            reducers[i] = new Reducer(i);
+            pending[i] = new Batch();
+        }
+    }
+
+    /**
+     * Check the first lines of a delimited file for the id, timestamp shape of
+     * a raw punch log.
+     */
+    public static boolean looksLikePunchLog(String inputFilePath) throws IOException {
+        int[] seen = new int[2]; // lines, lines with a timestamp
+        try {
+            DelimitedReader.forEachRow(inputFilePath, row -> {
+                if (row[0] != null && row[0].trim().equalsIgnoreCase("Employee:"))
+                    throw new CancellationException();
+                seen[0]++;
+                if (timestampOf(row) >= 0)
+                    seen[1]++;
+                if (seen[0] >= 20)
+                    throw new CancellationException();
+            });
+        } catch (CancellationException stop) {
+            // enough lines sampled
+        }
+        return seen[0] > 0 && seen[1] * 10 >= seen[0] * 8;
+    }
+
+    /**
+     * Read a punch log and reduce it on the given number of partitions.
+     */
+    static MergeResult read(String inputFilePath, int partitions, ProgressTracker tracker) throws Exception {
+        return new PunchLogReader(Math.max(1, partitions), tracker).run(inputFilePath);
+    }
+
+    private MergeResult run(String inputFilePath) throws Exception {
+        System.out.println("\n========================================");
+        System.out.println("Processing punch log: " + inputFilePath + " (" + reducers.length + " partitions)");
+        System.out.println("========================================");
+
+        if (tracker != null) {
+            tracker.setTotalSheets(1);
+        }
+        for (Reducer reducer : reducers) {
+            reducer.start();
+        }
+
+        try {
+            DelimitedReader.forEachRow(inputFilePath, this::punch);
+            for (int p = 0; p < reducers.length; p++) {
+                if (pending[p].size > 0) {
+                    submit(p, pending[p]);
+                }
+            }
+        } finally {
+            for (int p = 0; p < reducers.length; p++) {
+                submit(p, END);
+            }
+            for (Reducer reducer : reducers) {
+                reducer.join();
+            }
+        }
+        for (Reducer reducer : reducers) {
+            if (reducer.failure != null)
+                throw failed(reducer);
+        }
+        if (tracker != null) {
+            tracker.sheetDone(pendingRows);
+        }
+        if (skipped > 0) {
+            System.out.println("⚠️  Skipped " + skipped + " rows without a valid id and timestamp");
+        }
+
+        // Report month: the one with the most punches
+        Map<Integer, Integer> monthCounts = new HashMap<>();
+        List<EmployeePunches> all = new ArrayList<>();
+        for (Reducer reducer : reducers) {
+            reducer.monthCounts.forEach((k, v) -> monthCounts.merge(k, v, Integer::sum));
+            all.addAll(reducer.employees.values());
+        }
+        int key = monthCounts.entrySet().stream()
+                .max(Map.Entry.<Integer, Integer>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                .map(Map.Entry::getKey)
+                .orElse(YearMonth.now().getYear() * 12 + YearMonth.now().getMonthValue() - 1);
+        YearMonth ym = YearMonth.of(key / 12, key % 12 + 1);
+        System.out.println("✓ Detected: " + ym + " from " + monthCounts.getOrDefault(key, 0) + " punches");
+
+        // Employees in order of first appearance in the log
+        all.sort(Comparator.comparingLong(e -> e.firstSeq));
+        List<EmployeeData> employees = new ArrayList<>(all.size());
+        for (EmployeePunches punches : all) {
+            employees.add(toEmployee(punches, ym));
+            if (tracker != null) {
+                tracker.employeeDone();
+            }
+        }
+        System.out.println("✓ Built " + employees.size() + " employees from " + seq + " punches");
+
+        return new MergeResult(employees, ym.lengthOfMonth(), ym.getYear(), ym.getMonthValue());
+    }
+
+    private void punch(String[] row) {
+        if (tracker != null && ++pendingRows >= tracker.interval) {
+            tracker.addRows(pendingRows);
+            pendingRows = 0;
+        }
+
+        long ts = timestampOf(row);
+        String empId = row[0] != null ? row[0].trim() : "";
+        if (ts < 0 || empId.isEmpty()) {
+            skipped++;
+            return;
+        }
+
+        int p = (empId.hashCode() & 0x7fffffff) % reducers.length;
+        Batch batch = pending[p];
+        int i = batch.size++;
+        batch.ids[i] = empId;
+        batch.days[i] = epochDay((int) (ts >>> 32));
+        batch.minutes[i] = (int) ts & 0xFFFF;
+        batch.seqs[i] = seq++;
+        if (batch.size == BATCH_SIZE) {
+            submit(p, batch);
+            pending[p] = new Batch();
+        }
+    }
+
+    /**
+     * Queue a batch for a reducer. A reducer that has died no longer drains
+     * its queue, so the read fails with its error instead of waiting on it;
+     * END is dropped for a dead reducer, its failure is reported after the
+     * join.
+     */
+    private void submit(int partition, Batch batch) {
+        Reducer reducer = reducers[partition];
+        try {
+            while (!reducer.queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                if (!reducer.isAlive()) {
+                    if (batch == END)
+                        return;
+                    throw failed(reducer);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Punch log read interrupted");
+        }
+        if (reducer.failure != null && batch != END)
+            throw failed(reducer);
+    }
+
+    private static IllegalStateException failed(Reducer reducer) {
+        Throwable cause = reducer.failure;
+        return new IllegalStateException(reducer.getName() + " failed"
+                + (cause != null ? ": " + cause.getMessage() : ""), cause);
+    }
+
+    private int epochDay(int packedDate) {
+        int y = packedDate >>> 9, m = (packedDate >>> 5) & 0xF, d = packedDate & 0x1F;
+        if (y != lastY || m != lastM || d != lastD) {
+            lastY = y;
+            lastM = m;
+            lastD = d;
+            lastEpochDay = (int) LocalDate.of(y, m, d).toEpochDay();
+        }
+        return lastEpochDay;
+    }
+
+    /**
+     * Render one employee's punches as the rows of a Monthly Status Report.
+     */
+    private static EmployeeData toEmployee(EmployeePunches punches, YearMonth ym) {
+        int days = ym.lengthOfMonth();
+        List<String> status = new ArrayList<>(days), in = new ArrayList<>(days), out = new ArrayList<>(days),
+                duration = new ArrayList<>(days), blank = new ArrayList<>(days), shift = new ArrayList<>(days);
+
+        for (int d = 1; d <= days; d++) {
+            LocalDate date = ym.atDay(d);
+            boolean weekend = date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY;
+            int[] day = punches.days.get((int) date.toEpochDay());
+
+            if (day == null) {
+                status.add(weekend ? "WO" : "A");
+                in.add("");
+                out.add("");
+                duration.add("00:00");
+                shift.add("NS");
+            } else {
+                // A single punch is a punch miss: in time only
+                boolean both = day[2] > 1 && day[1] > day[0];
+                status.add(weekend ? "WOP" : "P");
+                in.add(hhmm(day[0]));
+                out.add(both ? hhmm(day[1]) : "");
+                duration.add(both ? hhmm(day[1] - day[0]) : "00:00");
+                shift.add("GS");
+            }
+            blank.add("");
+        }
+
+        EmployeeData emp = new EmployeeData();
+        emp.empId = punches.empId;
+        emp.empName = punches.empId;
+        emp.dailyData.put("Status", status);
+        emp.dailyData.put("InTime", in);
+        emp.dailyData.put("OutTime", out);
+        emp.dailyData.put("Duration", duration);
+        emp.dailyData.put("Late By", blank);
+        emp.dailyData.put("Early By", new ArrayList<>(blank));
+        emp.dailyData.put("OT", new ArrayList<>(blank));
+        emp.dailyData.put("Shift", shift);
+        return emp;
+    }
+
+    private static String hhmm(int minute) {
+        return two(minute / 60) + ":" + two(minute % 60);
+    }
+
+    private static String two(int n) {
+        return n < 10 ? "0" + n : String.valueOf(n);
+    }
+
+    /**
+     * The punch time of a row, packed as (y << 9 | m << 5 | d) << 32 | minute
+     * of day, or -1. The timestamp is column 1, or columns 1 and 2 when the
+     * date and time are split.
+     */
+    static long timestampOf(String[] row) {
+        if (row.length < 2 || row[1] == null)
+            return -1;
+        long ts = parseTimestamp(row[1]);
+        if (ts < 0 && row.length > 2 && row[2] != null) {
+            ts = parseTimestamp(row[1].trim() + " " + row[2].trim());
+        }
+        return ts;
+    }
+
+    /**
+     * Parse "yyyy-MM-dd HH:mm[:ss]" (also with / or T) and "dd-MM-yyyy HH:mm[:ss]"
+     * (also with /), with an optional AM/PM suffix. Returns -1 if the text is
+     * not a timestamp.
+     */
+    static long parseTimestamp(String s) {
+        int[] nums = new int[6];
+        int[] widths = new int[6];
+        int count = 0;
+        boolean pm = false, am = false;
+
+        int i = 0, n = s.length();
+        while (i < n && count < 6) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                int v = 0, w = 0;
+                while (i < n && (c = s.charAt(i)) >= '0' && c <= '9') {
+                    v = v * 10 + (c - '0');
+                    w++;
+                    i++;
+                }
+                nums[count] = v;
+                widths[count++] = w;
+            } else {
+                int meridiem = meridiem(s, i);
+                pm |= meridiem > 0;
+                am |= meridiem < 0;
+                i++;
+            }
+        }
+        // Trailing text such as AM/PM after the seconds
+        for (; i < n; i++) {
+            int meridiem = meridiem(s, i);
+            pm |= meridiem > 0;
+            am |= meridiem < 0;
+        }
+        if (count < 5)
+            return -1;
+
+        int y, m, d;
+        if (widths[0] == 4) {
+            y = nums[0];
+            m = nums[1];
+            d = nums[2];
+        } else if (widths[2] == 4) {
+            d = nums[0];
+            m = nums[1];
+            y = nums[2];
+        } else {
+            return -1;
+        }
+        int hour = nums[3], minute = nums[4];
+        if (pm && hour < 12)
+            hour += 12;
+        else if (am && hour == 12)
+            hour = 0;
+
+        if (m < 1 || m > 12 || d < 1 || d > 31 || hour > 23 || minute > 59)
+            return -1;
+        if (d > YearMonth.of(y, m).lengthOfMonth())
+            return -1;
+
+        long date = ((long) y << 9) | (m << 5) | d;
+        return date << 32 | (hour * 60 + minute);
+    }
+
+    /**
+     * 1 if a "PM" token starts at i, -1 for "AM", else 0. Any case; a token
+     * inside a longer word ("Main Gate", "AMT") does not count.
+     */
+    private static int meridiem(String s, int i) {
+        if (i + 1 >= s.length() || Character.toUpperCase(s.charAt(i + 1)) != 'M')
+            return 0;
+        if (i > 0 && Character.isLetter(s.charAt(i - 1)))
+            return 0;
+        if (i + 2 < s.length() && Character.isLetter(s.charAt(i + 2)))
+            return 0;
+        char c = Character.toUpperCase(s.charAt(i));
+        return c == 'P' ? 1 : c == 'A' ? -1 : 0;
+    }
+}
@@ -0,0 +1,261 @@
+package org.bioparse.cleaning;
+
+import org.bioparse.cleaning.AttendanceStore.Status;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Per-day status bitmaps over employee positions (the order of
+ * {@link AttendanceMerger.MergeResult#allEmployees}): one bitmap per status
+ * code per day, plus the present (P/WO/WOP) and absent (A) classes of
+ * {@link TextClassifier}. "How many were absent on day d" is a cardinality,
+ * and "who was absent on days 3-7" or "on both Friday and Monday" an
+ * intersection, instead of a scan over every employee's Status list.
+ *
+ * Built once from the {@link DayIndex} by
+ * {@link AttendanceMerger.MergeResult#index()}; read-only after.
+ */
+public class StatusBitmaps {
+
+    private static final Status[] CODES = Status.values();
+    // Slots after the status codes
+    private static final int PRESENT = CODES.length, ABSENT = CODES.length + 1, SLOTS = CODES.length + 2;
+
+    private final int employees;
+    private final int days;
+    // [day * SLOTS + slot]
+    private final Bitmap[] bitmaps;
+
+    StatusBitmaps(DayIndex index) {
+        this.employees = index.employees();
+        this.days = index.days();
+        this.bitmaps = new Bitmap[days * SLOTS];
+
+        boolean[] present = new boolean[CODES.length];
+        boolean[] absent = new boolean[CODES.length];
+        for (Status s : CODES) {
+            present[s.ordinal()] = TextClassifier.isPresentStatus(s.text);
+            absent[s.ordinal()] = TextClassifier.isAbsentStatus(s.text);
+        }
+
+        long[][] words = new long[SLOTS][wordCount(employees)];
+        for (int d = 0; d < days; d++) {
+            for (long[] slot : words) {
+                Arrays.fill(slot, 0);
+            }
+            for (int e = 0; e < employees; e++) {
+                Status s = index.status(d, e);
+                set(words[s.ordinal()], e);
+                if (s == Status.OTHER) {
+                    // Codes are exact; the classifier also takes "p", "wo", ...
+                    String text = index.text(AttendanceStore.STATUS, d, e);
+                    if (TextClassifier.isPresentStatus(text)) {
+                        set(words[PRESENT], e);
+                    } else if (TextClassifier.isAbsentStatus(text)) {
+                        set(words[ABSENT], e);
+                    }
+                } else if (present[s.ordinal()]) {
+                    set(words[PRESENT], e);
+                } else if (absent[s.ordinal()]) {
+                    set(words[ABSENT], e);
+                }
+            }
+            for (int slot = 0; slot < SLOTS; slot++) {
+                bitmaps[d * SLOTS + slot] = Bitmap.of(words[slot], employees);
+            }
+        }
+    }
+
+    public int employees() {
+        return employees;
+    }
+
+    /** Employees with a status code on a zero-based day. */
+    public Bitmap with(Status status, int day) {
+        if (day >= days || day < 0)
+            return status == Status.EMPTY ? Bitmap.all(employees) : Bitmap.none(employees);
+        return bitmaps[day * SLOTS + status.ordinal()];
+    }
+
+    /** Employees present (P, WO or WOP, any case) on a zero-based day. */
+    public Bitmap present(int day) {
+        return day >= days || day < 0 ? Bitmap.none(employees) : bitmaps[day * SLOTS + PRESENT];
+    }
+
+    /** Employees absent (A, any case) on a zero-based day. */
+    public Bitmap absent(int day) {
+        return day >= days || day < 0 ? Bitmap.none(employees) : bitmaps[day * SLOTS + ABSENT];
+    }
+
+    /** Employees absent on every one of the given zero-based days. */
+    public Bitmap absentOnAll(int... days) {
+        Bitmap result = Bitmap.all(employees);
+        for (int day : days) {
+            result = result.and(absent(day));
+        }
+        return result;
+    }
+
+    /** Employees absent on every day from firstDay to lastDay, inclusive and zero-based. */
+    public Bitmap absentThroughout(int firstDay, int lastDay) {
+        Bitmap result = Bitmap.all(employees);
+        for (int day = firstDay; day <= lastDay && !result.isEmpty(); day++) {
+            result = result.and(absent(day));
+        }
+        return result;
+    }
+
+    private static int wordCount(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    private static void set(long[] words, int bit) {
+        words[bit >>> 6] |= 1L << bit;
+    }
+
+    /**
+     * An immutable set of employee positions. Like a Roaring container it is
+     * kept in whichever of two forms is smaller: a sorted int array when few
+     * employees are members, a plain bitset otherwise.
+     */
+    public static final class Bitmap {
+        private final int universe;
+        private final int cardinality;
+        // Exactly one of the two is set
+        private final int[] members;
+        private final long[] words;
+
+        private Bitmap(int universe, int cardinality, int[] members, long[] words) {
+            this.universe = universe;
+            this.cardinality = cardinality;
+            this.members = members;
+            this.words = words;
+        }
+
+        static Bitmap of(long[] words, int universe) {
+            int cardinality = 0;
+            for (long w : words) {
+                cardinality += Long.bitCount(w);
+            }
+            // An int per member against a bit per employee
+            if ((long) cardinality * 32 < universe) {
+                int[] members = new int[cardinality];
+                int n = 0;
+                for (int i = 0; i < words.length; i++) {
+                    for (long w = words[i]; w != 0; w &= w - 1) {
+                        members[n++] = (i << 6) + Long.numberOfTrailingZeros(w);
+                    }
+                }
+                return new Bitmap(universe, cardinality, members, null);
+            }
+            return new Bitmap(universe, cardinality, null, words.clone());
+        }
+
+        static Bitmap none(int universe) {
+            return new Bitmap(universe, 0, new int[0], null);
+        }
+
+        static Bitmap all(int universe) {
+            long[] words = new long[wordCount(universe)];
+            Arrays.fill(words, -1L);
+            if ((universe & 63) != 0)
+                words[words.length - 1] = (1L << universe) - 1;
+            return of(words, universe);
+        }
+
+        public int cardinality() {
+            return cardinality;
+        }
+
+        public boolean isEmpty() {
+            return cardinality == 0;
+        }
+
+        public boolean contains(int employee) {
+            if (employee < 0 || employee >= universe)
+                return false;
+            if (words != null)
+                return (words[employee >>> 6] & (1L << employee)) != 0;
+            return Arrays.binarySearch(members, employee) >= 0;
+        }
+
+        public Bitmap and(Bitmap other) {
+            if (members != null && other.members != null) {
+                int[] both = new int[Math.min(cardinality, other.cardinality)];
+                int n = 0;
+                for (int i = 0, j = 0; i < members.length && j < other.members.length;) {
+                    if (members[i] < other.members[j]) {
+                        i++;
+                    } else if (members[i] > other.members[j]) {
+                        j++;
+                    } else {
+                        both[n++] = members[i];
+                        i++;
+                        j++;
+                    }
+                }
+                return new Bitmap(universe, n, Arrays.copyOf(both, n), null);
+            }
+            if (members != null || other.members != null) {
+                // Probe the sparse side against the dense one
+                Bitmap sparse = members != null ? this : other, dense = sparse == this ? other : this;
+                int[] both = new int[sparse.cardinality];
+                int n = 0;
+                for (int m : sparse.members) {
+                    if (dense.contains(m))
+                        both[n++] = m;
+                }
+                return new Bitmap(universe, n, Arrays.copyOf(both, n), null);
+            }
+            long[] result = new long[words.length];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = words[i] & other.words[i];
+            }
+            return of(result, universe);
+        }
+
+        public Bitmap or(Bitmap other) {
+            long[] result = toWords();
+            long[] theirs = other.toWords();
+            for (int i = 0; i < result.length; i++) {
+                result[i] |= theirs[i];
+            }
+            return of(result, universe);
+        }
+
+        public Bitmap andNot(Bitmap other) {
+            long[] result = toWords();
+            long[] theirs = other.toWords();
+            for (int i = 0; i < result.length; i++) {
+                result[i] &= ~theirs[i];
+            }
+            return of(result, universe);
+        }
+
+        /** Visit the member positions in ascending order. */
+        public void forEach(IntConsumer action) {
+            if (members != null) {
+                for (int m : members) {
+                    action.accept(m);
+                }
+                return;
+            }
+            for (int i = 0; i < words.length; i++) {
+                for (long w = words[i]; w != 0; w &= w - 1) {
+                    action.accept((i << 6) + Long.numberOfTrailingZeros(w));
+                }
+            }
+        }
+
+        private long[] toWords() {
+            if (words != null)
+                return words.clone();
+            long[] result = new long[wordCount(universe)];
+            for (int m : members) {
+                set(result, m);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.bioparse.cleaning;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Hands out one canonical String per distinct short cell value ("P", "WO",
+ * "00:00", "GS", ...), so the millions of repeated day cells of a big roster
+ * share a few hundred instances.
+ *
+ * The table uses open addressing with linear probing and is keyed on the
+ * characters themselves: a value that is already pooled is returned without
+ * building a substring or decoding bytes first. Long values (names, summary
+ * text) are passed through, and the table stops growing at MAX_ENTRIES so
+ * unique values cannot flood it. Not thread-safe; each parser owns one.
+ */
+final class StringPool {
+
+    static final int MAX_LENGTH = 16;
+    private static final int MAX_ENTRIES = 4096;
+
+    private String[] table = new String[256];
+    private int[] hashes = new int[256];
+    private int count;
+
+    private long lookups;
+    private long hits;
+
+    String intern(String s) {
+        return s == null ? null : intern(s, 0, s.length());
+    }
+
+    /**
+     * Canonical instance of s.substring(start, end).
+     */
+    String intern(String s, int start, int end) {
+        int len = end - start;
+        boolean whole = start == 0 && end == s.length();
+        if (len > MAX_LENGTH)
+            return whole ? s : s.substring(start, end);
+
+        lookups++;
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + s.charAt(i);
+        }
+        int mask = table.length - 1;
+        int slot = spread(h) & mask;
+        for (String e; (e = table[slot]) != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == h && e.length() == len && e.regionMatches(0, s, start, len)) {
+                hits++;
+                return e;
+            }
+        }
+        String value = whole ? s : s.substring(start, end);
+        add(slot, value, h);
+        return value;
+    }
+
+    /**
+     * Canonical String for ASCII bytes, or null if they are not ASCII or too
+     * long to pool (the caller then decodes them itself).
+     */
+    String intern(byte[] bytes, int off, int len) {
+        if (len > MAX_LENGTH)
+            return null;
+
+        int h = 0;
+        for (int i = off; i < off + len; i++) {
+            byte b = bytes[i];
+            if (b < 0)
+                return null;
+            h = 31 * h + b;
+        }
+        lookups++;
+        int mask = table.length - 1;
+        int slot = spread(h) & mask;
+        for (String e; (e = table[slot]) != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == h && e.length() == len && matches(e, bytes, off)) {
+                hits++;
+                return e;
+            }
+        }
+        String value = new String(bytes, off, len, StandardCharsets.US_ASCII);
+        add(slot, value, h);
+        return value;
+    }
+
+    /** Lookups answered so far, and how many of them were already pooled. */
+    long lookups() {
+        return lookups;
+    }
+
+    long hits() {
+        return hits;
+    }
+
+    int size() {
+        return count;
+    }
+
+    private static boolean matches(String e, byte[] bytes, int off) {
+        for (int i = 0; i < e.length(); i++) {
+            if (e.charAt(i) != bytes[off + i])
+                return false;
+        }
+        return true;
+    }
+
+    private void add(int slot, String value, int h) {
+        if (count >= MAX_ENTRIES)
+            return;
+        table[slot] = value;
+        hashes[slot] = h;
+        // Keep the load factor at or below one half
+        if (++count * 2 > table.length) {
+            rehash();
+        }
+    }
+
+    private void rehash() {
+        String[] oldTable = table;
+        int[] oldHashes = hashes;
+        table = new String[oldTable.length * 2];
+        hashes = new int[table.length];
+        int mask = table.length - 1;
+        for (int i = 0; i < oldTable.length; i++) {
+            if (oldTable[i] == null)
+                continue;
+            int slot = spread(oldHashes[i]) & mask;
+            while (table[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = oldTable[i];
+            hashes[slot] = oldHashes[i];
+        }
+    }
+
+    // Short strings hash to nearby values; mix the high bits in
+    private static int spread(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        return h ^ (h >>> 13);
+    }
+}
@@ -0,0 +1,289 @@
+package org.bioparse.cleaning;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Classifies the cell text of a Monthly Status Report: month headers,
+ * summary text, row labels and day statuses.
+ *
+ * Everything here runs once per cell, so patterns are compiled once, summary
+ * phrases are matched in a single pass with an Aho-Corasick automaton, and
+ * row labels are looked up through a perfect hash table.
+ */
+public class TextClassifier {
+
+    private static final String MONTHS = "Jan|Feb|Mar|Apr|May|Jun|Jul|Aug|Sep|Oct|Nov|Dec";
+
+    // "Oct 01 2025 To Oct 31 2025"
+    private static final Pattern MONTH_DAY_YEAR = Pattern.compile("(?i)^(" + MONTHS + ")[a-z]*\\s+\\d{1,2}\\s+\\d{4}.*");
+    // "Oct 2025"
+    private static final Pattern MONTH_YEAR = Pattern.compile("(?i)^(" + MONTHS + ")[a-z]*\\s+\\d{4}.*");
+    // Report period rows in column 0, e.g. "Oct 01 2025  To  Oct 31 2025"
+    private static final Pattern PERIOD_ROW = Pattern.compile("^[A-Za-z]{3} .*\\d{4}.*");
+    // "1225 : John Smith"
+    private static final Pattern ID_NAME = Pattern.compile(".*\\d+.*:.*");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /** Month name (short or long) followed by a year anywhere in a text. */
+    static final Pattern MONTH_IN_TEXT = Pattern.compile("(?i)\\b(Jan(?:uary)?|Feb(?:ruary)?|Mar(?:ch)?|Apr(?:il)?|May|"
+            + "Jun(?:e)?|Jul(?:y)?|Aug(?:ust)?|Sep(?:tember)?|Oct(?:ober)?|Nov(?:ember)?|Dec(?:ember)?)\\b[\\s\\-\\/,]*?(\\d{4})");
+
+    // --- Summary phrases (Aho-Corasick) ---
+
+    private static final String[] SUMMARY_PHRASES = { "total work duration", "total ot", "present:", "absent:",
+            "weeklyoff:", "holidays:", "leaves taken", "late by hrs", "early by hrs", "shift count",
+            "average working", "hrs." };
+
+    // Lower-case ASCII char -> automaton alphabet index, -1 for chars in no phrase
+    private static final int[] SUMMARY_ALPHABET = new int[128];
+    // Complete transition table: state x alphabet index -> state
+    private static final int[][] SUMMARY_NEXT;
+    // States at which some phrase ends
+    private static final boolean[] SUMMARY_MATCH;
+
+    static {
+        Arrays.fill(SUMMARY_ALPHABET, -1);
+        int alphabetSize = 0;
+        for (String phrase : SUMMARY_PHRASES) {
+            for (char c : phrase.toCharArray()) {
+                if (SUMMARY_ALPHABET[c] < 0) {
+                    SUMMARY_ALPHABET[c] = alphabetSize++;
+                }
+            }
+        }
+
+        // Trie
+        List<int[]> next = new ArrayList<>();
+        List<Boolean> match = new ArrayList<>();
+        next.add(newState(alphabetSize));
+        match.add(false);
+        for (String phrase : SUMMARY_PHRASES) {
+            int state = 0;
+            for (char c : phrase.toCharArray()) {
+                int a = SUMMARY_ALPHABET[c];
+                if (next.get(state)[a] < 0) {
+                    next.get(state)[a] = next.size();
+                    next.add(newState(alphabetSize));
+                    match.add(false);
+                }
+                state = next.get(state)[a];
+            }
+            match.set(state, true);
+        }
+
+        // Failure links, folded into the transition table breadth-first
+        int[] fail = new int[next.size()];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int a = 0; a < alphabetSize; a++) {
+            int child = next.get(0)[a];
+            if (child < 0) {
+                next.get(0)[a] = 0;
+            } else {
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int a = 0; a < alphabetSize; a++) {
+                int child = next.get(state)[a];
+                if (child < 0) {
+                    next.get(state)[a] = next.get(fail[state])[a];
+                } else {
+                    fail[child] = next.get(fail[state])[a];
+                    match.set(child, match.get(child) || match.get(fail[child]));
+                    queue.add(child);
+                }
+            }
+        }
+
+        SUMMARY_NEXT = next.toArray(new int[0][]);
+        SUMMARY_MATCH = new boolean[match.size()];
+        for (int i = 0; i < SUMMARY_MATCH.length; i++) {
+            SUMMARY_MATCH[i] = match.get(i);
+        }
+    }
+
+    private static int[] newState(int alphabetSize) {
+        int[] state = new int[alphabetSize];
+        Arrays.fill(state, -1);
+        return state;
+    }
+
+    // --- Row labels (perfect hash) ---
+
+    static final String[] DATA_LABELS = { "Status", "InTime", "OutTime", "Duration", "Late By", "Early By", "OT", "Shift" };
+
+    private static final int LABEL_BITS = 4;
+    private static final String[] LABEL_TABLE = new String[1 << LABEL_BITS];
+    private static final int LABEL_SEED;
+
+    static {
+        // Find a multiplier that sends every label to its own slot
+        int seed = 1;
+        while (!placeLabels(seed)) {
+            seed += 2;
+        }
+        LABEL_SEED = seed;
+    }
+
+    private static boolean placeLabels(int seed) {
+        Arrays.fill(LABEL_TABLE, null);
+        for (String label : DATA_LABELS) {
+            int slot = labelSlot(label, seed);
+            if (LABEL_TABLE[slot] != null) {
+                return false;
+            }
+            LABEL_TABLE[slot] = label;
+        }
+        return true;
+    }
+
+    private static int labelSlot(String text, int seed) {
+        int h = 0;
+        for (int i = 0; i < text.length(); i++) {
+            h = 31 * h + Character.toLowerCase(text.charAt(i));
+        }
+        return (h * seed) >>> (32 - LABEL_BITS);
+    }
+
+    /**
+     * The canonical spelling of a data row label ("Status", "InTime", ...),
+     * matched case-insensitively, or null if the text is not a data label.
+     */
+    public static String dataLabel(String text) {
+        if (text == null || text.isEmpty() || text.length() > 8)
+            return null;
+        String candidate = LABEL_TABLE[labelSlot(text, LABEL_SEED)];
+        return candidate != null && candidate.equalsIgnoreCase(text) ? candidate : null;
+    }
+
+    public static boolean isDataLabel(String text) {
+        return dataLabel(text) != null;
+    }
+
+    /**
+     * Check if text is summary text that should be ignored
+     */
+    public static boolean isSummaryText(String value) {
+        if (value == null || value.isEmpty()) {
+            return false;
+        }
+
+        int state = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = Character.toLowerCase(value.charAt(i));
+            int a = c < 128 ? SUMMARY_ALPHABET[c] : -1;
+            state = a < 0 ? 0 : SUMMARY_NEXT[state][a];
+            if (SUMMARY_MATCH[state]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Column-0 text of a report period row ("Oct 01 2025  To  Oct 31 2025"). */
+    public static boolean isPeriodRow(String text) {
+        return PERIOD_ROW.matcher(text).matches();
+    }
+
+    /** Employee cell of the form "ID : Name". */
+    public static boolean isIdName(String text) {
+        return ID_NAME.matcher(text).matches();
+    }
+
+    /** Status codes counted as present: P, WO and WOP. */
+    public static boolean isPresentStatus(String status) {
+        return "P".equalsIgnoreCase(status) || "WO".equalsIgnoreCase(status) || "WOP".equalsIgnoreCase(status);
+    }
+
+    public static boolean isAbsentStatus(String status) {
+        return "A".equalsIgnoreCase(status);
+    }
+
+    /**
+     * Parse a report header such as "Oct 01 2025 To Oct 31 2025" or "Oct 2025".
+     * Returns {year, month}, or null when the text is not a header or the year
+     * is outside the current year +/- 1.
+     */
+    public static int[] parseMonthHeader(String val) {
+        boolean matchesMonthDayYear = MONTH_DAY_YEAR.matcher(val).matches();
+        boolean matchesMonthYear = !matchesMonthDayYear && MONTH_YEAR.matcher(val).matches();
+
+        if (!matchesMonthDayYear && !matchesMonthYear) {
+            return null;
+        }
+
+        String cleanVal = WHITESPACE.matcher(val).replaceAll(" ").trim();
+        String[] parts = cleanVal.split(" ");
+        String monthName = parts[0];
+
+        try {
+            int detectedYear = -1;
+
+            if (matchesMonthDayYear && parts.length >= 3) {
+                detectedYear = Integer.parseInt(parts[2]);
+            } else if (matchesMonthYear && parts.length >= 2) {
+                detectedYear = Integer.parseInt(parts[1]);
+            }
+
+            int currentYear = Calendar.getInstance().get(Calendar.YEAR);
+            if (detectedYear >= currentYear - 1 && detectedYear <= currentYear + 1) {
+                int month = monthNumber(monthName);
+                int monthDays = YearMonth.of(detectedYear, month).lengthOfMonth();
+
+                LocalDate firstDay = LocalDate.of(detectedYear, month, 1);
+                System.out.println("✓ Detected: " + cleanVal + " → Year=" + detectedYear +
+                                 ", Month=" + month + " (" + monthName + "), " +
+                                 "Days=" + monthDays + ", Starts: " + firstDay.getDayOfWeek());
+                return new int[] { detectedYear, month };
+            }
+        } catch (Exception ex) {
+            System.out.println("⚠️  Could not parse date from: " + val);
+        }
+        return null;
+    }
+
+    /**
+     * Find "month year" anywhere in a text (e.g. "August 2025", "Aug-2025").
+     * Returns {year, month} or null.
+     */
+    public static int[] findMonthYear(String text) {
+        if (text == null || text.isEmpty())
+            return null;
+        Matcher m = MONTH_IN_TEXT.matcher(text);
+        if (!m.find())
+            return null;
+        return new int[] { Integer.parseInt(m.group(2)), monthNumber(m.group(1)) };
+    }
+
+    /**
+     * Month number (1-12) from a short or long month name, or -1.
+     */
+    public static int monthNumber(String name) {
+        if (name == null || name.length() < 3)
+            return -1;
+        switch (name.substring(0, 3).toUpperCase()) {
+        case "JAN": return 1;
+        case "FEB": return 2;
+        case "MAR": return 3;
+        case "APR": return 4;
+        case "MAY": return 5;
+        case "JUN": return 6;
+        case "JUL": return 7;
+        case "AUG": return 8;
+        case "SEP": return 9;
+        case "OCT": return 10;
+        case "NOV": return 11;
+        case "DEC": return 12;
+        default: return -1;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package org.bioparse.cleaning;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only access to an existing workbook on disk.
+ *
+ * .xlsx packages are opened from the File with {@link PackageAccess#READ}, so
+ * POI reads zip entries on demand instead of copying the archive into memory;
+ * .xls files use a read-only POIFS. Nothing is parsed until asked for:
+ * {@link #rows} streams a single sheet, and {@link #workbook} builds the
+ * usermodel only for callers that need it. close() releases the file.
+ */
+public class WorkbookAccess implements Closeable {
+
+    private final File file;
+    private final boolean xls;
+    private OPCPackage pkg;
+    private POIFSFileSystem fs;
+    private Workbook workbook;
+
+    // Thrown by the row handler to end a sheet read early: a SAX parse has no
+    // other way to stop, and a flag would still read the rest of the sheet
+    private static class EnoughRows extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        EnoughRows() {
+            super(null, null, false, false);
+        }
+    }
+
+    private WorkbookAccess(File file) throws IOException {
+        this.file = file;
+        this.xls = file.getName().toLowerCase().endsWith(".xls");
+        try {
+            if (xls) {
+                fs = new POIFSFileSystem(file, true);
+            } else {
+                pkg = OPCPackage.open(file, PackageAccess.READ);
+            }
+        } catch (InvalidFormatException ex) {
+            throw new IOException("Not an Excel workbook: " + file, ex);
+        }
+    }
+
+    public static WorkbookAccess open(String path) throws IOException {
+        File file = new File(path);
+        if (!file.isFile()) {
+            throw new FileNotFoundException("Workbook not found: " + path);
+        }
+        return new WorkbookAccess(file);
+    }
+
+    /**
+     * The usermodel workbook, built on first call. Read-only: it may be written
+     * to another file, but never back to this one.
+     */
+    public Workbook workbook() throws IOException {
+        if (workbook == null) {
+            workbook = xls ? new HSSFWorkbook(fs.getRoot(), true) : new XSSFWorkbook(pkg);
+        }
+        return workbook;
+    }
+
+    /**
+     * Formatted cell values of the first maxRows non-empty rows of a sheet, or
+     * null if there is no such sheet. For .xlsx only that sheet's part (and
+     * the shared strings) is read.
+     */
+    public List<String[]> rows(String sheetName, int maxRows) throws IOException {
+        return rows(sheetName, maxRows, new DataFormatter());
+    }
+
+    /**
+     * rows with another formatter. For .xlsx, numeric cells reach it through
+     * formatRawCellContents; for .xls through formatCellValue.
+     */
+    public List<String[]> rows(String sheetName, int maxRows, DataFormatter formatter) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        if (xls || workbook != null) {
+            Sheet sheet = workbook().getSheet(sheetName);
+            if (sheet == null)
+                return null;
+            for (Row row : sheet) {
+                if (rows.size() >= maxRows)
+                    break;
+                String[] cells = new String[Math.max(0, row.getLastCellNum())];
+                for (Cell cell : row) {
+                    cells[cell.getColumnIndex()] = formatter.formatCellValue(cell);
+                }
+                rows.add(cells);
+            }
+            return rows;
+        }
+
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (sheets.hasNext()) {
+                try (InputStream sheetData = sheets.next()) {
+                    if (!sheets.getSheetName().equalsIgnoreCase(sheetName))
+                        continue;
+
+                    XMLReader xmlReader = XMLHelper.newXMLReader();
+                    xmlReader.setContentHandler(new XSSFSheetXMLHandler(reader.getStylesTable(),
+                            new ReadOnlySharedStringsTable(pkg),
+                            new XlsxStreamingReader.RowCollector(cells -> {
+                                if (rows.size() >= maxRows)
+                                    throw new EnoughRows();
+                                rows.add(cells);
+                            }), formatter, false));
+                    try {
+                        xmlReader.parse(new InputSource(sheetData));
+                    } catch (EnoughRows stop) {
+                        // maxRows read
+                    }
+                    return rows;
+                }
+            }
+            return null;
+        } catch (SAXException | OpenXML4JException | ParserConfigurationException ex) {
+            throw new IOException("Could not read sheet " + sheetName + " of " + file, ex);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (pkg != null) {
+            // close() would try to save a read-only package
+            pkg.revert();
+        } else {
+            if (workbook != null)
+                workbook.close();
+            fs.close();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package org.bioparse.cleaning;
+
+import org.apache.poi.hssf.eventusermodel.FormatTrackingHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.eventusermodel.MissingRecordAwareHSSFListener;
+import org.apache.poi.hssf.eventusermodel.dummyrecord.LastCellOfRowDummyRecord;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.StringRecord;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a legacy .xls export record by record with HSSFEventFactory and
+ * feeds each row to an {@link EmployeeBlockParser}. The POIFS container is
+ * opened read-only from the file, and no HSSFWorkbook or cell objects are
+ * built; only the shared string table and the current row are kept.
+ */
+public class XlsEventReader implements HSSFListener {
+
+    private final EmployeeBlockParser parser;
+    private FormatTrackingHSSFListener formatListener;
+
+    private final List<BoundSheetRecord> boundSheets = new ArrayList<>();
+    private BoundSheetRecord[] orderedSheets;
+    private SSTRecord sstRecord;
+
+    private int sheetIndex = -1;
+    private boolean inSheet;
+    private boolean skipSheet;
+
+    private final List<String> cells = new ArrayList<>();
+    // Column of a formula whose string result follows in a StringRecord
+    private int pendingStringColumn = -1;
+
+    private XlsEventReader(EmployeeBlockParser parser) {
+        this.parser = parser;
+    }
+
+    public static void read(String inputFilePath, EmployeeBlockParser parser) throws Exception {
+        XlsEventReader reader = new XlsEventReader(parser);
+        reader.formatListener = new FormatTrackingHSSFListener(new MissingRecordAwareHSSFListener(reader));
+
+        HSSFRequest request = new HSSFRequest();
+        request.addListenerForAllRecords(reader.formatListener);
+
+        try (POIFSFileSystem fs = new POIFSFileSystem(new File(inputFilePath), true)) {
+            new HSSFEventFactory().processWorkbookEvents(request, fs);
+        }
+    }
+
+    @Override
+    public void processRecord(Record record) {
+        switch (record.getSid()) {
+            case BoundSheetRecord.sid:
+                boundSheets.add((BoundSheetRecord) record);
+                break;
+
+            case SSTRecord.sid:
+                sstRecord = (SSTRecord) record;
+                break;
+
+            case BOFRecord.sid:
+                if (((BOFRecord) record).getType() == BOFRecord.TYPE_WORKSHEET) {
+                    startSheet();
+                }
+                break;
+
+            case EOFRecord.sid:
+                if (inSheet) {
+                    inSheet = false;
+                    if (!skipSheet) {
+                        parser.endSheet();
+                    }
+                }
+                break;
+
+            case LabelSSTRecord.sid:
+                LabelSSTRecord lsst = (LabelSSTRecord) record;
+                setCell(lsst.getColumn(), sstRecord == null ? null : sstRecord.getString(lsst.getSSTIndex()).toString());
+                break;
+
+            case LabelRecord.sid:
+                LabelRecord label = (LabelRecord) record;
+                setCell(label.getColumn(), label.getValue());
+                break;
+
+            case NumberRecord.sid:
+                NumberRecord number = (NumberRecord) record;
+                setCell(number.getColumn(), formatListener.formatNumberDateCell(number));
+                break;
+
+            case FormulaRecord.sid:
+                FormulaRecord formula = (FormulaRecord) record;
+                if (formula.hasCachedResultString()) {
+                    pendingStringColumn = formula.getColumn();
+                } else {
+                    setCell(formula.getColumn(), formatListener.formatNumberDateCell(formula));
+                }
+                break;
+
+            case StringRecord.sid:
+                if (pendingStringColumn >= 0) {
+                    setCell(pendingStringColumn, ((StringRecord) record).getString());
+                    pendingStringColumn = -1;
+                }
+                break;
+
+            case BoolErrRecord.sid:
+                BoolErrRecord boolErr = (BoolErrRecord) record;
+                if (boolErr.isBoolean()) {
+                    setCell(boolErr.getColumn(), boolErr.getBooleanValue() ? "TRUE" : "FALSE");
+                }
+                break;
+
+            default:
+                if (record instanceof LastCellOfRowDummyRecord) {
+                    endRow();
+                }
+        }
+    }
+
+    private void startSheet() {
+        if (orderedSheets == null) {
+            orderedSheets = BoundSheetRecord.orderByBofPosition(boundSheets);
+            int count = 0;
+            for (BoundSheetRecord sheet : orderedSheets) {
+                if (!sheet.getSheetname().equalsIgnoreCase("Master")) {
+                    count++;
+                }
+            }
+            parser.setTotalSheets(count);
+        }
+        sheetIndex++;
+        inSheet = true;
+        cells.clear();
+
+        String sheetName = sheetIndex < orderedSheets.length ? orderedSheets[sheetIndex].getSheetname() : "";
+        skipSheet = sheetName.equalsIgnoreCase("Master");
+        if (skipSheet)
+            return;
+
+        System.out.println("\n========================================");
+        System.out.println("Processing sheet: " + sheetName);
+        System.out.println("========================================");
+        parser.startSheet();
+    }
+
+    private void setCell(int col, String value) {
+        if (!inSheet || skipSheet)
+            return;
+        while (cells.size() <= col) {
+            cells.add(null);
+        }
+        cells.set(col, value);
+    }
+
+    private void endRow() {
+        if (!inSheet || skipSheet || cells.isEmpty())
+            return;
+        parser.row(cells.toArray(new String[0]));
+        cells.clear();
+    }
+}
@@ -0,0 +1,109 @@
+package org.bioparse.cleaning;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads an .xlsx export with POI's event model (XSSFReader + SAX) and feeds
+ * each row to an {@link EmployeeBlockParser}. Only one sheet row is held at a
+ * time; the shared strings table is the only workbook-wide structure loaded.
+ */
+public class XlsxStreamingReader {
+
+    public static void read(String inputFilePath, EmployeeBlockParser parser) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(new File(inputFilePath), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+            DataFormatter formatter = new DataFormatter();
+
+            parser.setTotalSheets(countSheets(reader));
+
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (sheets.hasNext()) {
+                try (InputStream sheetData = sheets.next()) {
+                    String sheetName = sheets.getSheetName();
+                    if (sheetName.equalsIgnoreCase("Master"))
+                        continue;
+
+                    System.out.println("\n========================================");
+                    System.out.println("Processing sheet: " + sheetName);
+                    System.out.println("========================================");
+
+                    parser.startSheet();
+                    XMLReader xmlReader = XMLHelper.newXMLReader();
+                    xmlReader.setContentHandler(
+                            new XSSFSheetXMLHandler(styles, strings, new RowCollector(parser::row), formatter, false));
+                    xmlReader.parse(new InputSource(sheetData));
+                    parser.endSheet();
+                }
+            }
+        }
+    }
+
+    private static int countSheets(XSSFReader reader) throws Exception {
+        int count = 0;
+        XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+        while (sheets.hasNext()) {
+            sheets.next().close();
+            if (!sheets.getSheetName().equalsIgnoreCase("Master")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Collects the formatted cell values of one row and hands them on.
+     */
+    static class RowCollector implements SheetContentsHandler {
+        private final Consumer<String[]> rowHandler;
+        private final List<String> cells = new ArrayList<>();
+
+        RowCollector(Consumer<String[]> rowHandler) {
+            this.rowHandler = rowHandler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cells.clear();
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int col = cellReference != null ? new CellReference(cellReference).getCol() : cells.size();
+            while (cells.size() < col) {
+                cells.add(null);
+            }
+            if (col == cells.size()) {
+                cells.add(formattedValue);
+            } else {
+                cells.set(col, formattedValue);
+            }
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (cells.isEmpty())
+                return;
+            rowHandler.accept(cells.toArray(new String[0]));
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package org.bioparse.cleaning;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes an .xlsx file straight into a ZipOutputStream, for sheets whose
+ * layout is known up front (the Master sheet, summary sheets): sheet XML is
+ * streamed row by row with inline strings, and the workbook, relationship
+ * and content type parts and a fixed styles.xml are added on {@link #close}.
+ * Nothing of a sheet is kept in memory, and there is no POI object model or
+ * temp file in between.
+ *
+ * Rows must be written in ascending order and cells left to right. The
+ * styles are the four the Master sheet uses: {@link #STYLE_DEFAULT},
+ * {@link #STYLE_BORDER}, and the bordered {@link #STYLE_WEEKEND} and
+ * {@link #STYLE_HOLIDAY} fills. {@link #appending} adds sheets to an
+ * existing file instead.
+ */
+public final class XlsxWriter implements Closeable {
+
+    public static final int STYLE_DEFAULT = 0, STYLE_BORDER = 1, STYLE_WEEKEND = 2, STYLE_HOLIDAY = 3;
+
+    private static final String MAIN_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String REL_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String XML_HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+
+    // Fills 2 and 3 use the indexed colours of IndexedColors.LIGHT_YELLOW and LIGHT_ORANGE
+    private static final String STYLES = XML_HEADER
+            + "<styleSheet xmlns=\"" + MAIN_NS + "\">"
+            + "<fonts count=\"1\"><font><sz val=\"11\"/><color theme=\"1\"/><name val=\"Calibri\"/>"
+            + "<family val=\"2\"/><scheme val=\"minor\"/></font></fonts>"
+            + "<fills count=\"4\"><fill><patternFill patternType=\"none\"/></fill>"
+            + "<fill><patternFill patternType=\"gray125\"/></fill>"
+            + "<fill><patternFill patternType=\"solid\"><fgColor indexed=\"43\"/><bgColor indexed=\"64\"/></patternFill></fill>"
+            + "<fill><patternFill patternType=\"solid\"><fgColor indexed=\"52\"/><bgColor indexed=\"64\"/></patternFill></fill>"
+            + "</fills>"
+            + "<borders count=\"2\"><border><left/><right/><top/><bottom/><diagonal/></border>"
+            + "<border><left style=\"thin\"><color indexed=\"64\"/></left><right style=\"thin\"><color indexed=\"64\"/></right>"
+            + "<top style=\"thin\"><color indexed=\"64\"/></top><bottom style=\"thin\"><color indexed=\"64\"/></bottom>"
+            + "<diagonal/></border></borders>"
+            + "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>"
+            + "<cellXfs count=\"4\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>"
+            + "<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"1\" xfId=\"0\" applyBorder=\"1\"/>"
+            + "<xf numFmtId=\"0\" fontId=\"0\" fillId=\"2\" borderId=\"1\" xfId=\"0\" applyFill=\"1\" applyBorder=\"1\"/>"
+            + "<xf numFmtId=\"0\" fontId=\"0\" fillId=\"3\" borderId=\"1\" xfId=\"0\" applyFill=\"1\" applyBorder=\"1\"/>"
+            + "</cellXfs>"
+            + "<cellStyles count=\"1\"><cellStyle name=\"Normal\" xfId=\"0\" builtinId=\"0\"/></cellStyles>"
+            + "</styleSheet>";
+
+    private static final String TYPES = XML_HEADER
+            + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+            + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+            + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+            + "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>"
+            + "<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>"
+            + "</Types>";
+    private static final String WORKBOOK = XML_HEADER
+            + "<workbook xmlns=\"" + MAIN_NS + "\" xmlns:r=\"" + REL_NS + "\"><sheets></sheets></workbook>";
+    private static final String WORKBOOK_RELS = XML_HEADER
+            + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\"></Relationships>";
+    private static final String[] PATCHED_PARTS = { "[Content_Types].xml", "xl/workbook.xml",
+            "xl/_rels/workbook.xml.rels" };
+    private static final Pattern SHEET_ID = Pattern.compile("sheetId=\"(\\d+)\"");
+
+    private final ZipOutputStream zip;
+    private final Writer out;
+    // The package being extended, or null for a new one
+    private final File base;
+    private final Set<String> baseParts = new HashSet<>();
+    // Patched with the new sheets on close
+    private String typesXml = TYPES;
+    private String workbookXml = WORKBOOK;
+    private String workbookRelsXml = WORKBOOK_RELS;
+    private final List<String> sheetNames = new ArrayList<>();
+    private final List<String> sheetParts = new ArrayList<>();
+    private final List<String> columnRefs = new ArrayList<>();
+
+    private boolean inSheet;
+    private int rowNum = -1;
+    private String rowRef;
+    private int column;
+
+    /**
+     * Deflates at {@link Deflater#BEST_SPEED}: about half the time of the
+     * default level, for files about 40% larger than POI's.
+     */
+    public XlsxWriter(OutputStream target) {
+        this(target, null);
+    }
+
+    private XlsxWriter(OutputStream target, File base) {
+        this.base = base;
+        zip = new ZipOutputStream(target, StandardCharsets.UTF_8);
+        zip.setLevel(Deflater.BEST_SPEED);
+        out = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    /**
+     * A writer that adds sheets to a copy of an existing .xlsx file. Every
+     * part of source is copied to target as bytes, never parsed; only the
+     * workbook, its relationships and the content types are held back, to
+     * list the new sheets in them on {@link #close}. The new sheets use the
+     * default cell style only, as source's styles are kept as they are.
+     */
+    public static XlsxWriter appending(File source, OutputStream target) throws IOException {
+        XlsxWriter writer = new XlsxWriter(target, source);
+        try (ZipInputStream in = new ZipInputStream(new BufferedInputStream(new FileInputStream(source), 1 << 16))) {
+            byte[] buffer = new byte[1 << 16];
+            for (ZipEntry entry; (entry = in.getNextEntry()) != null;) {
+                String name = entry.getName();
+                writer.baseParts.add(name);
+                if (Arrays.asList(PATCHED_PARTS).contains(name)) {
+                    String xml = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                    if (name.equals(PATCHED_PARTS[0])) {
+                        writer.typesXml = xml;
+                    } else if (name.equals(PATCHED_PARTS[1])) {
+                        writer.workbookXml = xml;
+                    } else {
+                        writer.workbookRelsXml = xml;
+                    }
+                    continue;
+                }
+                writer.zip.putNextEntry(new ZipEntry(name));
+                for (int n; (n = in.read(buffer)) > 0;) {
+                    writer.zip.write(buffer, 0, n);
+                }
+                writer.zip.closeEntry();
+            }
+        } catch (IOException | RuntimeException ex) {
+            writer.zip.close();
+            throw ex;
+        }
+        if (!writer.baseParts.containsAll(Arrays.asList(PATCHED_PARTS))) {
+            writer.zip.close();
+            throw new IOException(source + " is not an .xlsx workbook");
+        }
+        return writer;
+    }
+
+    public void startSheet(String name) throws IOException {
+        startSheet(name, null);
+    }
+
+    /**
+     * Start the next sheet. Column widths are in characters, as
+     * Sheet.setColumnWidth / 256; null or 0 entries keep the default width.
+     */
+    public void startSheet(String name, double[] columnWidths) throws IOException {
+        if (inSheet)
+            endSheet();
+        if (workbookXml.contains("name=\"" + escapeText(name) + "\"") || sheetNames.contains(name))
+            throw new IllegalArgumentException("The workbook already contains a sheet named '" + name + "'");
+        String part;
+        for (int n = sheetParts.size() + 1;; n++) {
+            part = "xl/worksheets/sheet" + n + ".xml";
+            if (!baseParts.contains(part) && !sheetParts.contains(part))
+                break;
+        }
+        sheetNames.add(name);
+        sheetParts.add(part);
+        zip.putNextEntry(new ZipEntry(part));
+        out.write(XML_HEADER);
+        out.write("<worksheet xmlns=\"" + MAIN_NS + "\" xmlns:r=\"" + REL_NS + "\">");
+        if (columnWidths != null && columnWidths.length > 0) {
+            out.write("<cols>");
+            for (int i = 0; i < columnWidths.length; i++) {
+                if (columnWidths[i] > 0) {
+                    out.write("<col min=\"" + (i + 1) + "\" max=\"" + (i + 1) + "\" width=\"" + columnWidths[i]
+                            + "\" customWidth=\"1\"/>");
+                }
+            }
+            out.write("</cols>");
+        }
+        out.write("<sheetData>");
+        inSheet = true;
+        rowNum = -1;
+    }
+
+    /** Start the zero-based row rowNum; rows left out stay empty. */
+    public void row(int rowNum) throws IOException {
+        if (!inSheet)
+            throw new IllegalStateException("No sheet started");
+        if (rowNum <= this.rowNum)
+            throw new IllegalArgumentException("Row " + rowNum + " after row " + this.rowNum);
+        endRow();
+        this.rowNum = rowNum;
+        rowRef = Integer.toString(rowNum + 1);
+        column = 0;
+        out.write("<row r=\"");
+        out.write(rowRef);
+        out.write("\">");
+    }
+
+    /** A text cell in the next column; null is written as "". */
+    public void text(String value, int style) throws IOException {
+        startCell(style, " t=\"inlineStr\"");
+        if (value == null || value.isEmpty()) {
+            out.write("<is><t></t></is></c>");
+            return;
+        }
+        boolean keepSpaces = Character.isWhitespace(value.charAt(0))
+                || Character.isWhitespace(value.charAt(value.length() - 1));
+        out.write(keepSpaces ? "<is><t xml:space=\"preserve\">" : "<is><t>");
+        escape(value);
+        out.write("</t></is></c>");
+    }
+
+    /** A numeric cell in the next column. */
+    public void number(double value, int style) throws IOException {
+        startCell(style, "");
+        out.write("<v>");
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.write(Long.toString((long) value));
+        } else {
+            out.write(Double.toString(value));
+        }
+        out.write("</v></c>");
+    }
+
+    /** Skip the next column, leaving its cell empty. */
+    public void skip() {
+        column++;
+    }
+
+    public void endSheet() throws IOException {
+        if (!inSheet)
+            return;
+        endRow();
+        out.write("</sheetData></worksheet>");
+        out.flush();
+        zip.closeEntry();
+        inSheet = false;
+    }
+
+    /** Finish the last sheet and the package. The target stream is closed. */
+    @Override
+    public void close() throws IOException {
+        endSheet();
+        if (sheetNames.isEmpty() && base == null)
+            startSheet("Sheet1");
+        endSheet();
+
+        String types = typesXml;
+        String workbook = workbookXml;
+        String workbookRels = workbookRelsXml;
+        int sheetId = 0;
+        for (Matcher m = SHEET_ID.matcher(workbook); m.find();) {
+            sheetId = Math.max(sheetId, Integer.parseInt(m.group(1)));
+        }
+        StringBuilder typeOverrides = new StringBuilder();
+        StringBuilder sheets = new StringBuilder();
+        StringBuilder relationships = new StringBuilder();
+        for (int i = 0; i < sheetNames.size(); i++) {
+            String relId = freeRelId(workbookRels + relationships);
+            typeOverrides.append("<Override PartName=\"/").append(sheetParts.get(i))
+                    .append("\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+            sheets.append("<sheet name=\"").append(escapeText(sheetNames.get(i))).append("\" sheetId=\"").append(++sheetId)
+                    .append("\" xmlns:r=\"").append(REL_NS).append("\" r:id=\"").append(relId).append("\"/>");
+            relationships.append("<Relationship Id=\"").append(relId).append("\" Type=\"").append(REL_NS)
+                    .append("/worksheet\" Target=\"").append(sheetParts.get(i).substring("xl/".length())).append("\"/>");
+        }
+        if (base == null) {
+            relationships.append("<Relationship Id=\"").append(freeRelId(workbookRels + relationships))
+                    .append("\" Type=\"").append(REL_NS).append("/styles\" Target=\"styles.xml\"/>");
+        }
+
+        part("[Content_Types].xml", insertBefore(types, "</Types>", typeOverrides));
+        part("xl/workbook.xml", insertBefore(workbook, "</sheets>", sheets));
+        part("xl/_rels/workbook.xml.rels", insertBefore(workbookRels, "</Relationships>", relationships));
+        if (base == null) {
+            part("_rels/.rels", XML_HEADER
+                    + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                    + "<Relationship Id=\"rId1\" Type=\"" + REL_NS + "/officeDocument\" Target=\"xl/workbook.xml\"/>"
+                    + "</Relationships>");
+            part("xl/styles.xml", STYLES);
+        }
+        out.close();
+    }
+
+    private static String insertBefore(String xml, String closingTag, CharSequence insert) throws IOException {
+        int at = xml.lastIndexOf(closingTag);
+        if (at < 0)
+            throw new IOException("Unexpected workbook part, no " + closingTag);
+        return xml.substring(0, at) + insert + xml.substring(at);
+    }
+
+    private static String freeRelId(String rels) {
+        int n = 1;
+        while (rels.contains("Id=\"rId" + n + "\""))
+            n++;
+        return "rId" + n;
+    }
+
+    private void part(String name, String xml) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        out.write(xml);
+        out.flush();
+        zip.closeEntry();
+    }
+
+    private void startCell(int style, String type) throws IOException {
+        if (rowRef == null)
+            throw new IllegalStateException("No row started");
+        out.write("<c r=\"");
+        out.write(columnRef(column++));
+        out.write(rowRef);
+        out.write('"');
+        if (style != STYLE_DEFAULT) {
+            out.write(" s=\"");
+            out.write(Integer.toString(style));
+            out.write('"');
+        }
+        out.write(type);
+        out.write('>');
+    }
+
+    private void endRow() throws IOException {
+        if (rowRef != null) {
+            out.write("</row>");
+            rowRef = null;
+        }
+    }
+
+    // "A", "B", ..., "Z", "AA", ... for zero-based columns
+    private String columnRef(int col) {
+        while (columnRefs.size() <= col) {
+            int n = columnRefs.size() + 1;
+            StringBuilder ref = new StringBuilder();
+            for (; n > 0; n = (n - 1) / 26) {
+                ref.insert(0, (char) ('A' + (n - 1) % 26));
+            }
+            columnRefs.add(ref.toString());
+        }
+        return columnRefs.get(col);
+    }
+
+    private void escape(String s) throws IOException {
+        int start = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            String replacement;
+            if (ch == '<') {
+                replacement = "&lt;";
+            } else if (ch == '>') {
+                replacement = "&gt;";
+            } else if (ch == '&') {
+                replacement = "&amp;";
+            } else if (ch < 0x20 && ch != '\t' && ch != '\n' && ch != '\r' || ch == 0xFFFE || ch == 0xFFFF) {
+                // Not allowed in XML 1.0
+                replacement = "";
+            } else {
+                continue;
+            }
+            out.write(s, start, i - start);
+            out.write(replacement);
+            start = i + 1;
+        }
+        out.write(s, start, s.length() - start);
+    }
+
+    private static String escapeText(String s) {
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
@@ -4,6 +4,7 @@ import javax.swing.*;
 import javax.swing.border.*;
 import java.awt.*;
 import java.awt.event.ActionListener;
+import java.io.File;
 import java.time.YearMonth;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
@@ -45,6 +46,9 @@ public class ConfigWizardPanel extends JPanel {
     private JProgressBar progressBar;
     private JPanel loadingPanel;
     private Timer progressTimer;
+    private JProgressBar determinateProgress;
+    private JButton cancelBtn;
+    private volatile boolean cancelRequested;
     
     
     // Color scheme
@@ -93,11 +97,35 @@ public class ConfigWizardPanel extends JPanel {
     
     private void setupFileBrowseActions() {
         // Add action listeners for browse buttons
-        selectInputBtn.addActionListener(e -> browseForFile(inputFileField, "Select Input Attendance File", "Excel Files", "xlsx", "xls"));
+        selectInputBtn.addActionListener(e -> browseForInputs());
         selectMergedBtn.addActionListener(e -> browseForFile(mergedFileField, "Select Merged Output File", "Excel Files", "xlsx", "xls"));
         selectReportBtn.addActionListener(e -> browseForFile(reportFileField, "Select Report Output File", "Excel Files", "xlsx", "xls"));
     }
     
+    /**
+     * Input chooser: one export, several exports or a folder of branch
+     * exports. Several selections are joined with the path separator.
+     */
+    private void browseForInputs() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Select Input Attendance File(s) or Folder");
+        fileChooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+        fileChooser.setMultiSelectionEnabled(true);
+        fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
+            "Attendance Exports (Excel, CSV, TXT)", "xlsx", "xls", "csv", "tsv", "txt"));
+        
+        if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            StringBuilder paths = new StringBuilder();
+            for (File file : fileChooser.getSelectedFiles()) {
+                if (paths.length() > 0) {
+                    paths.append(File.pathSeparator);
+                }
+                paths.append(file.getAbsolutePath());
+            }
+            inputFileField.setText(paths.toString());
+        }
+    }
+    
     private void browseForFile(JTextField field, String title, String description, String... extensions) {
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle(title);
@@ -657,17 +685,27 @@ private JPanel createActionsCard(ActionListener processListener, ActionListener
     progressBar.setPreferredSize(new Dimension(200, 20));
     progressBar.setVisible(false);
     
-    // Optional: determinate progress bar for longer operations
-    JProgressBar determinateProgress = new JProgressBar(0, 100);
+    // Determinate progress bar, driven by the merge progress callback
+    determinateProgress = new JProgressBar(0, 100);
     determinateProgress.setPreferredSize(new Dimension(200, 20));
     determinateProgress.setVisible(false);
     determinateProgress.setStringPainted(true);
     
+    cancelBtn = createActionButton("✖ Cancel", DANGER_COLOR, "Stop processing", e -> {
+        cancelRequested = true;
+        cancelBtn.setEnabled(false);
+        setStatus("Cancelling...", WARNING_COLOR);
+    });
+    cancelBtn.setAlignmentX(Component.CENTER_ALIGNMENT);
+    cancelBtn.setMaximumSize(new Dimension(Integer.MAX_VALUE, BUTTON_HEIGHT));
+    
     loadingPanel.add(spinnerPanel);
     loadingPanel.add(Box.createVerticalStrut(10));
     loadingPanel.add(progressBar);
     loadingPanel.add(Box.createVerticalStrut(5));
     loadingPanel.add(determinateProgress);
+    loadingPanel.add(Box.createVerticalStrut(10));
+    loadingPanel.add(cancelBtn);
     
     // Add loading panel to button panel
     buttonPanel.add(Box.createVerticalStrut(10));
@@ -845,7 +883,11 @@ private JPanel createActionsCard(ActionListener processListener, ActionListener
  // Add these methods to ConfigWizardPanel.java
 
     public void showLoading() {
+        cancelRequested = false;
         SwingUtilities.invokeLater(() -> {
+            cancelBtn.setEnabled(true);
+            determinateProgress.setValue(0);
+            determinateProgress.setVisible(false);
             processBtn.setEnabled(false);
             processBtn.setText("⏳ Processing...");
             loadingPanel.setVisible(true);
@@ -863,6 +905,7 @@ private JPanel createActionsCard(ActionListener processListener, ActionListener
             processBtn.setText("🔧 Merge & Process Data");
             loadingPanel.setVisible(false);
             progressBar.setVisible(false);
+            determinateProgress.setVisible(false);
             revalidate();
             repaint();
         });
@@ -870,9 +913,22 @@ private JPanel createActionsCard(ActionListener processListener, ActionListener
 
     public void showProgress(int progress, String message) {
         SwingUtilities.invokeLater(() -> {
+            if (cancelRequested) {
+                return;
+            }
+            progressBar.setVisible(false);
+            determinateProgress.setVisible(true);
+            determinateProgress.setValue(progress);
             statusLabel.setText(message + " (" + progress + "%)");
         });
     }
+
+    /**
+     * True once the user pressed Cancel during the current run.
+     */
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
     
     
     
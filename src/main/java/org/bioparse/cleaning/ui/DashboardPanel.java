@@ -9,6 +9,8 @@ import java.util.Map;
 import org.bioparse.cleaning.AttendanceMerger;
 import org.bioparse.cleaning.AttendanceReportGenerator;
 import org.bioparse.cleaning.Constants;
+import org.bioparse.cleaning.MergeSnapshot;
+import org.bioparse.cleaning.MonthCalendar;
 
 public class DashboardPanel extends JPanel {
     private static final long serialVersionUID = 1L;
@@ -16,6 +18,8 @@ public class DashboardPanel extends JPanel {
     private JLabel totalOTHoursLabel, totalHalfDaysLabel, totalWorkingDaysLabel, monthLabel;
     private JPanel statsGridPanel;
     private AttendanceMerger.MergeResult mergeResult;
+    // Snapshot version the stats were computed for
+    private long shownVersion = -1;
     private int selectedYear, selectedMonth;
     
     public DashboardPanel() {
@@ -159,6 +163,14 @@ public class DashboardPanel extends JPanel {
         return panel;
     }
     
+    /** Recompute the stats for a snapshot, unless they already show its version. */
+    public void updateStats(MergeSnapshot snapshot) {
+        if (snapshot.version == shownVersion)
+            return;
+        shownVersion = snapshot.version;
+        updateStats(snapshot.result);
+    }
+    
     public void updateStats(AttendanceMerger.MergeResult mergeResult) {
         this.mergeResult = mergeResult;
         if (mergeResult != null) {
@@ -206,15 +218,16 @@ private void calculateAndDisplayStats() {
         }
     }
     
+    // Pass empty holidays for dashboard
+    MonthCalendar calendar = MonthCalendar.of(mergeResult.year, mergeResult.month, java.util.Collections.emptyList());
+    
     // Process each employee
     for (AttendanceMerger.EmployeeData emp : employees) {
         // Calculate metrics using the report generator
         AttendanceReportGenerator.Metrics metrics = reportGenerator.computeMetrics(
             emp, 
             totalWorkingDays, 
-            java.util.Collections.emptyList(), // Pass empty holidays for dashboard
-            mergeResult.year, 
-            mergeResult.month
+            calendar
         );
         
         // Accumulate statistics
@@ -11,9 +11,11 @@ import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.Locale;
 
+import org.bioparse.cleaning.AttendanceArchive;
 import org.bioparse.cleaning.AttendanceMerger;
 import org.bioparse.cleaning.Constants;
 import org.bioparse.cleaning.AttendanceQueryViewer;
+import org.bioparse.cleaning.MergeSnapshot;
 
 public class DataViewerPanel extends JPanel {
     
@@ -33,7 +35,7 @@ public class DataViewerPanel extends JPanel {
     
     private JTextField empCodeField;
     private JSpinner daySpinner, startDaySpinner, endDaySpinner;
-    private JButton queryEmpBtn, queryDayBtn, queryRangeBtn, exportBtn, clearBtn;
+    private JButton queryEmpBtn, queryHistoryBtn, queryDayBtn, queryRangeBtn, exportBtn, clearBtn;
     private JTable dataTable;
     private DefaultTableModel dataModel;
     private JLabel statusLabel, panelTitleLabel, statsLabel;
@@ -42,8 +44,12 @@ public class DataViewerPanel extends JPanel {
     private JPanel statsPanel;
     
     private AttendanceMerger.MergeResult mergeResult;
+    // Snapshot version the query viewer was set up for
+    private long shownVersion = -1;
     private AttendanceQueryViewer queryViewer;
     private String mergedFilePath;
+    // Month files of earlier merges, for the employee history
+    private String archiveDir;
     private int currentYear, currentMonth;
     
     public DataViewerPanel(ActionListener queryListener, ActionListener exportListener) {
@@ -185,7 +191,8 @@ public class DataViewerPanel extends JPanel {
             ACCENT_BLUE,
             new Component[] {
                 createInputField("Employee ID", "Enter employee code...", 200),
-                createStyledButton("🔍 Search Employee", ACCENT_BLUE, "queryEmp")
+                createStyledButton("🔍 Search Employee", ACCENT_BLUE, "queryEmp"),
+                createStyledButton("🗂️ Past Months", ACCENT_BLUE, "queryHistory")
             }
         ));
         
@@ -392,6 +399,11 @@ public class DataViewerPanel extends JPanel {
                 button.setEnabled(false);
                 button.addActionListener(this::showEmployeeData);
                 break;
+            case "queryHistory":
+                queryHistoryBtn = button;
+                button.setEnabled(false);
+                button.addActionListener(this::showEmployeeHistory);
+                break;
             case "queryDay":
                 queryDayBtn = button;
                 button.setEnabled(false);
@@ -641,6 +653,27 @@ public class DataViewerPanel extends JPanel {
         }
     }
     
+    private void showEmployeeHistory(ActionEvent e) {
+        if (mergeResult == null || queryViewer == null) {
+            showError("📭 No data loaded", "Please process attendance data in the Configuration panel first.");
+            return;
+        }
+        
+        String empCode = empCodeField.getText().trim();
+        if (empCode.isEmpty() || empCode.equals("Enter employee code...")) {
+            showError("❓ Missing Employee ID", "Please enter a valid employee code.");
+            return;
+        }
+        
+        try {
+            queryViewer.showEmployeeHistory(empCode);
+            updateStatus("✅ Showing archived months for employee: " + empCode);
+        } catch (Exception ex) {
+            showError("🚨 Query Error", "Failed to load archived data: " + ex.getMessage());
+            ex.printStackTrace();
+        }
+    }
+    
     private void showDayData(ActionEvent e) {
         if (mergeResult == null || queryViewer == null) {
             showError("📭 No data loaded", "Please process attendance data in the Configuration panel first.");
@@ -727,6 +760,14 @@ public class DataViewerPanel extends JPanel {
     
     // ========== PUBLIC METHODS ==========
     
+    /** Load a snapshot, unless its version is the one already loaded. */
+    public void setSnapshot(MergeSnapshot snapshot) {
+        if (snapshot.version == shownVersion)
+            return;
+        shownVersion = snapshot.version;
+        setMergeResult(snapshot.result);
+    }
+    
     public void setMergeResult(AttendanceMerger.MergeResult mergeResult) {
         this.mergeResult = mergeResult;
         
@@ -761,12 +802,13 @@ public class DataViewerPanel extends JPanel {
     
     private void enableQueryButtons(boolean enabled) {
         queryEmpBtn.setEnabled(enabled);
+        queryHistoryBtn.setEnabled(enabled);
         queryDayBtn.setEnabled(enabled);
         queryRangeBtn.setEnabled(enabled);
         
         // Update button styles
-        Color[] colors = {ACCENT_BLUE, ACCENT_GREEN, ACCENT_PURPLE};
-        JButton[] buttons = {queryEmpBtn, queryDayBtn, queryRangeBtn};
+        Color[] colors = {ACCENT_BLUE, ACCENT_BLUE, ACCENT_GREEN, ACCENT_PURPLE};
+        JButton[] buttons = {queryEmpBtn, queryHistoryBtn, queryDayBtn, queryRangeBtn};
         
         for (int i = 0; i < buttons.length; i++) {
             if (enabled) {
@@ -810,10 +852,13 @@ public class DataViewerPanel extends JPanel {
             if (mergedFile.exists()) {
                 queryViewer = new AttendanceQueryViewer(
                     mergedPath, 
-                    mergeResult.allEmployees,
+                    mergeResult,
                     currentYear, 
                     currentMonth
                 );
+                if (archiveDir != null) {
+                    queryViewer.setArchive(AttendanceArchive.open(new File(archiveDir)));
+                }
                 updateStatus("✅ Ready to query " + mergeResult.allEmployees.size() + " employees");
             } else {
                 updateStatus("⚠️ Merged file not found: " + mergedPath);
@@ -831,6 +876,11 @@ public class DataViewerPanel extends JPanel {
         }
     }
     
+    /** Directory of the attendance archive searched by "Past Months". */
+    public void setArchiveDir(String dir) {
+        this.archiveDir = dir;
+    }
+    
     public void enableExport(boolean enabled) {
         exportBtn.setEnabled(enabled);
         exportBtn.setBackground(enabled ? ACCENT_PURPLE : new Color(220, 225, 230));
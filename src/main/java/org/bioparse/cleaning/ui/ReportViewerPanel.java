@@ -18,6 +18,8 @@ public class ReportViewerPanel extends JPanel {
     
     private JTable reportTable;
     private DefaultTableModel reportModel;
+    // Snapshot version of the loaded rows, -1 if unknown or none
+    private long dataVersion = -1;
     private JTextField globalSearchField;
     private JComboBox<String> deptFilterCombo;
     private TableRowSorter<DefaultTableModel> reportSorter;
@@ -290,10 +292,21 @@ public class ReportViewerPanel extends JPanel {
         repaint();
     }
     
+    /**
+     * Load report data computed from a merge snapshot version.
+     */
+    public void loadReportData(String[][] data, String[] columns, long version) {
+        loadReportData(data, columns);
+        if (hasData()) {
+            dataVersion = version;
+        }
+    }
+    
     /**
      * Load report data directly (avoiding Excel reading issues)
      */
     public void loadReportData(String[][] data, String[] columns) {
+        dataVersion = -1;
         // Validate data
         if (data == null || columns == null || data.length == 0) {
             showEmptyState();
@@ -545,9 +558,14 @@ public class ReportViewerPanel extends JPanel {
     
     // Method to clear all data
     public void clearData() {
+        dataVersion = -1;
         showEmptyState();
     }
     
+    public long getDataVersion() {
+        return dataVersion;
+    }
+    
     // Method to check if data is loaded
     public boolean hasData() {
         return reportModel.getRowCount() > 0;
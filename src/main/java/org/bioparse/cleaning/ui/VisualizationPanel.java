@@ -6,12 +6,15 @@ import java.awt.*;
 
 import org.bioparse.cleaning.AttendanceMerger;
 import org.bioparse.cleaning.ChartDataGenerator;
+import org.bioparse.cleaning.MergeSnapshot;
 
 public class VisualizationPanel extends JPanel {
     
     private static final long serialVersionUID = 1L;
     private JPanel contentPanel;
     private AttendanceMerger.MergeResult mergeResult;
+    // Snapshot version the charts were built for
+    private long shownVersion = -1;
     
     public VisualizationPanel() {
         setLayout(new BorderLayout());
@@ -91,6 +94,14 @@ public class VisualizationPanel extends JPanel {
         return btn;
     }
     
+    /** Rebuild the charts for a snapshot, unless they already show its version. */
+    public void setSnapshot(MergeSnapshot snapshot) {
+        if (snapshot.version == shownVersion)
+            return;
+        shownVersion = snapshot.version;
+        setMergeResult(snapshot.result);
+    }
+    
     public void setMergeResult(AttendanceMerger.MergeResult mergeResult) {
         this.mergeResult = mergeResult;
         refreshCharts();
@@ -123,7 +134,7 @@ public class VisualizationPanel extends JPanel {
         // First Row - Overview Charts
         gbc.gridx = 0; gbc.gridy = 0;
         dashboard.add(createChartCard("Daily Trend", 
-            ChartDataGenerator.createAttendanceTrendChart(mergeResult.allEmployees, mergeResult.monthDays)), gbc);
+            ChartDataGenerator.createAttendanceTrendChart(mergeResult)), gbc);
         
         gbc.gridx = 1;
         dashboard.add(createChartCard("Attendance", 
@@ -149,11 +160,11 @@ public class VisualizationPanel extends JPanel {
         // Third Row - Additional Charts
         gbc.gridx = 0; gbc.gridy = 2;
         dashboard.add(createChartCard("Trend Line", 
-            ChartDataGenerator.createDailyAttendanceLineChart(mergeResult.allEmployees, mergeResult.monthDays)), gbc);
+            ChartDataGenerator.createDailyAttendanceLineChart(mergeResult)), gbc);
         
         gbc.gridx = 1;
         dashboard.add(createChartCard("Weekly", 
-            ChartDataGenerator.createWeeklyAttendanceChart(mergeResult.allEmployees, mergeResult.monthDays)), gbc);
+            ChartDataGenerator.createWeeklyAttendanceChart(mergeResult)), gbc);
         
         gbc.gridx = 2;
         dashboard.add(createChartCard("Punctuality", 